@@ -5,11 +5,15 @@ import com.minestat.client.config.ConfigManager;
 import com.minestat.client.cosmetics.CosmeticManager;
 import com.minestat.client.optimization.OptimizationManager;
 import com.minestat.client.ui.UIManager;
+import com.minestat.client.utils.StartupGraph;
 import com.minestat.client.version.VersionManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javax.swing.*;
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Main class for MinestatClient
@@ -35,6 +39,7 @@ public class MinestatClient {
     private OptimizationManager optimizationManager;
     private UIManager uiManager;
     
+    private StartupGraph startupGraph;
     private boolean running = false;
     
     /**
@@ -49,36 +54,55 @@ public class MinestatClient {
     }
     
     /**
-     * Initializes the client and all its managers
+     * Initializes the client and all its managers.
+     * Must not be called on the Swing Event Dispatch Thread, the UI stage waits for it.
      */
     public void initialize() {
         LOGGER.info("Initializing {} v{}", CLIENT_NAME, VERSION);
         
         try {
-            // Initialize managers in order of dependency
-            LOGGER.info("Loading configuration...");
-            configManager = new ConfigManager();
-            configManager.load();
+            // Managers only wait for the stages they depend on, the rest start in parallel
+            startupGraph = new StartupGraph()
+                .addStage("config", () -> {
+                    LOGGER.info("Loading configuration...");
+                    ConfigManager config = new ConfigManager();
+                    config.load();
+                    configManager = config;
+                })
+                .addStage("auth", () -> {
+                    LOGGER.info("Initializing authentication system...");
+                    AuthenticationManager auth = new AuthenticationManager();
+                    auth.initialize();
+                    authManager = auth;
+                }, "config")
+                .addStage("version", () -> {
+                    LOGGER.info("Initializing version manager...");
+                    VersionManager versions = new VersionManager();
+                    versions.initialize();
+                    versionManager = versions;
+                }, "config")
+                .addStage("cosmetics", () -> {
+                    LOGGER.info("Initializing cosmetic system...");
+                    CosmeticManager cosmetics = new CosmeticManager();
+                    cosmetics.initialize();
+                    cosmeticManager = cosmetics;
+                }, "config")
+                .addStage("optimization", () -> {
+                    LOGGER.info("Initializing optimization system...");
+                    OptimizationManager optimization = new OptimizationManager();
+                    optimization.initialize();
+                    optimizationManager = optimization;
+                }, "config")
+                .addStage("ui", () -> {
+                    LOGGER.info("Initializing UI manager...");
+                    UIManager ui = new UIManager();
+                    // Swing setup such as the look and feel belongs on the Event Dispatch Thread
+                    runOnEventDispatchThread(ui::initialize);
+                    uiManager = ui;
+                }, "config");
             
-            LOGGER.info("Initializing authentication system...");
-            authManager = new AuthenticationManager();
-            authManager.initialize();
-            
-            LOGGER.info("Initializing version manager...");
-            versionManager = new VersionManager();
-            versionManager.initialize();
-            
-            LOGGER.info("Initializing cosmetic system...");
-            cosmeticManager = new CosmeticManager();
-            cosmeticManager.initialize();
-            
-            LOGGER.info("Initializing optimization system...");
-            optimizationManager = new OptimizationManager();
-            optimizationManager.initialize();
-            
-            LOGGER.info("Initializing UI manager...");
-            uiManager = new UIManager();
-            uiManager.initialize();
+            startupGraph.run();
+            LOGGER.info("Startup stage timings (ms): {}", startupGraph.getTimings());
             
             running = true;
             LOGGER.info("{} initialized successfully!", CLIENT_NAME);
@@ -89,6 +113,24 @@ public class MinestatClient {
         }
     }
     
+    /**
+     * Run an action on the Swing Event Dispatch Thread and wait for it, rethrowing its failure
+     */
+    private static void runOnEventDispatchThread(Runnable action) {
+        try {
+            SwingUtilities.invokeAndWait(action);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("UI initialization failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while initializing the UI", e);
+        }
+    }
+    
     /**
      * Starts the client
      */
@@ -161,6 +203,13 @@ public class MinestatClient {
         return uiManager;
     }
     
+    /**
+     * Get how long each startup stage took in milliseconds
+     */
+    public Map<String, Long> getStartupTimings() {
+        return startupGraph != null ? startupGraph.getTimings() : Collections.<String, Long>emptyMap();
+    }
+    
     public boolean isRunning() {
         return running;
     }
@@ -173,22 +222,20 @@ public class MinestatClient {
         System.setProperty("apple.laf.useScreenMenuBar", "true");
         System.setProperty("com.apple.mrj.application.apple.menu.about.name", CLIENT_NAME);
         
-        // Start GUI on Swing Event Dispatch Thread
-        SwingUtilities.invokeLater(() -> {
-            try {
-                MinestatClient client = MinestatClient.getInstance();
-                client.initialize();
-                client.start();
-                
-                // Add shutdown hook
-                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                    client.shutdown();
-                }));
-                
-            } catch (Exception e) {
-                LOGGER.fatal("Failed to start client", e);
-                System.exit(1);
-            }
-        });
+        // Initialize off the Swing Event Dispatch Thread, screens are shown on it by UIManager
+        try {
+            MinestatClient client = MinestatClient.getInstance();
+            client.initialize();
+            client.start();
+            
+            // Add shutdown hook
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                client.shutdown();
+            }));
+            
+        } catch (Exception e) {
+            LOGGER.fatal("Failed to start client", e);
+            System.exit(1);
+        }
     }
 }
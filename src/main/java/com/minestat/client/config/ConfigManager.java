@@ -115,15 +115,25 @@ public class ConfigManager {
         public boolean fastRender = true;
         public boolean smoothFps = true;
         public boolean chunkOptimization = true;
+        public int chunkCacheMegabytes = 256;
         public int entityRenderDistance = 64;
         public boolean particleOptimization = true;
+        
+        // Build the next likely screen ahead of time, hidden screens are released after screenIdleMinutes
+        public boolean prewarmScreens = true;
+        public int screenIdleMinutes = 5;
+        
+        // Dynamic FPS targets, the focused target is VideoSettings.maxFps
+        public int unfocusedFps = 10;
+        public int minimizedFps = 1;
+        public int idleFps = 5;
+        public int idleTimeoutSeconds = 60;
+        // Applies on Windows, macOS and Linux laptops while unplugged
+        public int batteryFps = 60;
     }
     
     public static class CosmeticSettings {
-        public String selectedCape = "none_cape";
-        public String selectedWings = "none_wings";
-        public String selectedHat = "none_hat";
-        public String selectedParticle = "none_particle";
+        // Equipped cosmetics are stored by CosmeticProfileStore
         public boolean showCosmetics = true;
     }
     
@@ -11,6 +11,7 @@ public class Cosmetic {
     private final int price;
     private final String description;
     private final boolean animated;
+    private final String texture;
     
     public Cosmetic(String id, String name, CosmeticType type, int price) {
         this(id, name, type, price, "", false);
@@ -23,6 +24,7 @@ public class Cosmetic {
         this.price = price;
         this.description = description;
         this.animated = animated;
+        this.texture = "textures/cosmetics/" + id + ".png";
     }
     
     public String getId() {
@@ -48,4 +50,11 @@ public class Cosmetic {
     public boolean isAnimated() {
         return animated;
     }
+    
+    /**
+     * Texture resource, cosmetics sharing it can be drawn in one batch
+     */
+    public String getTexture() {
+        return texture;
+    }
 }
@@ -0,0 +1,287 @@
+package com.minestat.client.cosmetics;
+
+import com.minestat.client.optimization.Long2IntMap;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Animation state of all animated cosmetics in flat arrays, advanced in one pass per game tick.
+ * Animations of far or off-screen players are updated less often; each update catches up on the
+ * ticks it skipped, so phases stay correct. Render code interpolates between updates.
+ * Animations are keyed by the player's registry slot and the cosmetic type.
+ * Not thread-safe, use it from the render thread only; other threads hand changes over through post().
+ */
+public class CosmeticAnimator {
+    
+    public static final int TICKS_PER_SECOND = 20;
+    
+    private static final CosmeticType[] TYPES = CosmeticType.values();
+    
+    // Update intervals in ticks by distance and visibility
+    private static final double NEAR_DISTANCE = 32.0;
+    private static final double FAR_DISTANCE = 64.0;
+    private static final int FAR_INTERVAL = 2;
+    private static final int DISTANT_INTERVAL = 5;
+    private static final int HIDDEN_INTERVAL = 20;
+    
+    private final Long2IntMap indices = new Long2IntMap(256, -1);
+    
+    // Changes posted by other threads, applied at the start of the next update
+    private final Queue<Runnable> posted = new ConcurrentLinkedQueue<>();
+    
+    // Animations as parallel arrays, kept dense by swap-remove; phase counts cycles in [0, 1)
+    private long[] keys = new long[64];
+    private float[] phase = new float[64];
+    private float[] previousPhase = new float[64];
+    private float[] speed = new float[64];
+    private int[] remainingTicks = new int[64];
+    private long[] lastUpdateTick = new long[64];
+    private int[] lastInterval = new int[64];
+    private int size = 0;
+    
+    // Player positions and the tick they were last rendered, by registry slot
+    private double[] playerX = new double[16];
+    private double[] playerY = new double[16];
+    private double[] playerZ = new double[16];
+    private long[] renderedTick = new long[16];
+    
+    private long tick = 0;
+    private float tickRemainder = 0.0f;
+    
+    // Statistics of the last tick
+    private int lastTickUpdated = 0;
+    private int lastTickSkipped = 0;
+    
+    /**
+     * Start or restart an animation
+     * @param cyclesPerSecond animation speed
+     * @param durationTicks ticks until the animation ends by itself, 0 to loop until stopped
+     */
+    public void start(int playerSlot, CosmeticType type, float cyclesPerSecond, int durationTicks) {
+        long key = key(playerSlot, type);
+        int i = indices.get(key);
+        
+        if (i < 0) {
+            if (size == keys.length) {
+                grow();
+            }
+            i = size++;
+            keys[i] = key;
+            indices.put(key, i);
+        }
+        
+        phase[i] = 0.0f;
+        previousPhase[i] = 0.0f;
+        speed[i] = cyclesPerSecond / TICKS_PER_SECOND;
+        remainingTicks[i] = durationTicks > 0 ? durationTicks : -1;
+        lastUpdateTick[i] = tick;
+        lastInterval[i] = 1;
+    }
+    
+    public boolean stop(int playerSlot, CosmeticType type) {
+        int i = indices.remove(key(playerSlot, type));
+        
+        if (i < 0) {
+            return false;
+        }
+        
+        removeAt(i);
+        return true;
+    }
+    
+    /**
+     * Stop every animation of a player, e.g. when the player left render range
+     */
+    public void removePlayer(int playerSlot) {
+        for (CosmeticType type : TYPES) {
+            stop(playerSlot, type);
+        }
+    }
+    
+    public boolean isPlaying(int playerSlot, CosmeticType type) {
+        return indices.containsKey(key(playerSlot, type));
+    }
+    
+    /**
+     * Record that a player was rendered this frame and where.
+     * Players not rendered since the last tick are off-screen and animate at the lowest rate.
+     */
+    public void markRendered(int playerSlot, double x, double y, double z) {
+        if (playerSlot >= playerX.length) {
+            int capacity = Math.max(playerSlot + 1, playerX.length * 2);
+            playerX = Arrays.copyOf(playerX, capacity);
+            playerY = Arrays.copyOf(playerY, capacity);
+            playerZ = Arrays.copyOf(playerZ, capacity);
+            renderedTick = Arrays.copyOf(renderedTick, capacity);
+        }
+        
+        playerX[playerSlot] = x;
+        playerY[playerSlot] = y;
+        playerZ[playerSlot] = z;
+        renderedTick[playerSlot] = tick + 1;
+    }
+    
+    /**
+     * Run a change on the render thread at the start of the next update, e.g. start() from a UI action.
+     * Safe to call from any thread; posted changes run in the order they were posted.
+     */
+    public void post(Runnable change) {
+        posted.add(change);
+    }
+    
+    /**
+     * Advance by real time, running one tick per elapsed 1/20 second
+     * @return number of ticks run
+     */
+    public int update(float deltaSeconds, double cameraX, double cameraY, double cameraZ) {
+        Runnable change;
+        while ((change = posted.poll()) != null) {
+            change.run();
+        }
+        
+        tickRemainder += deltaSeconds * TICKS_PER_SECOND;
+        
+        // After a long stall catch up in a few ticks, decimated updates cover the gap anyway
+        int ticks = Math.min((int) tickRemainder, 10);
+        tickRemainder = Math.min(tickRemainder - ticks, 1.0f);
+        
+        for (int t = 0; t < ticks; t++) {
+            tick(cameraX, cameraY, cameraZ);
+        }
+        return ticks;
+    }
+    
+    /**
+     * Advance all animations by one tick in a single pass
+     */
+    public void tick(double cameraX, double cameraY, double cameraZ) {
+        tick++;
+        
+        double nearSq = NEAR_DISTANCE * NEAR_DISTANCE;
+        double farSq = FAR_DISTANCE * FAR_DISTANCE;
+        int updated = 0;
+        int skipped = 0;
+        
+        int i = 0;
+        while (i < size) {
+            int slot = (int) (keys[i] >>> 8);
+            
+            int interval = HIDDEN_INTERVAL;
+            if (slot < playerX.length && renderedTick[slot] == tick) {
+                double dx = playerX[slot] - cameraX;
+                double dy = playerY[slot] - cameraY;
+                double dz = playerZ[slot] - cameraZ;
+                double distanceSq = dx * dx + dy * dy + dz * dz;
+                
+                interval = distanceSq < nearSq ? 1 : distanceSq < farSq ? FAR_INTERVAL : DISTANT_INTERVAL;
+            }
+            
+            int elapsed = (int) (tick - lastUpdateTick[i]);
+            if (elapsed < interval) {
+                skipped++;
+                i++;
+                continue;
+            }
+            
+            if (remainingTicks[i] > 0) {
+                remainingTicks[i] -= elapsed;
+                if (remainingTicks[i] <= 0) {
+                    indices.remove(keys[i]);
+                    removeAt(i);
+                    continue;
+                }
+            }
+            
+            float previous = phase[i];
+            float next = previous + speed[i] * elapsed;
+            float wrap = (float) Math.floor(next);
+            
+            // Keep both in the same cycle so interpolation never runs backwards
+            previousPhase[i] = previous - wrap;
+            phase[i] = next - wrap;
+            lastUpdateTick[i] = tick;
+            lastInterval[i] = elapsed;
+            
+            updated++;
+            i++;
+        }
+        
+        lastTickUpdated = updated;
+        lastTickSkipped = skipped;
+    }
+    
+    /**
+     * Get an animation's phase for rendering, interpolated between its last two updates
+     * @param partialTick fraction of the current tick that has passed, 0 to 1
+     * @return phase in cycles, or -1 if the animation is not playing
+     */
+    public float getPhase(int playerSlot, CosmeticType type, float partialTick) {
+        int i = indices.get(key(playerSlot, type));
+        
+        if (i < 0) {
+            return -1.0f;
+        }
+        
+        float alpha = (tick - lastUpdateTick[i] + partialTick) / lastInterval[i];
+        alpha = Math.max(0.0f, Math.min(1.0f, alpha));
+        
+        float value = previousPhase[i] + (phase[i] - previousPhase[i]) * alpha;
+        return value < 0.0f ? value + 1.0f : value;
+    }
+    
+    private void removeAt(int i) {
+        int last = --size;
+        if (i == last) {
+            return;
+        }
+        
+        keys[i] = keys[last];
+        phase[i] = phase[last];
+        previousPhase[i] = previousPhase[last];
+        speed[i] = speed[last];
+        remainingTicks[i] = remainingTicks[last];
+        lastUpdateTick[i] = lastUpdateTick[last];
+        lastInterval[i] = lastInterval[last];
+        indices.put(keys[i], i);
+    }
+    
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        phase = Arrays.copyOf(phase, capacity);
+        previousPhase = Arrays.copyOf(previousPhase, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        remainingTicks = Arrays.copyOf(remainingTicks, capacity);
+        lastUpdateTick = Arrays.copyOf(lastUpdateTick, capacity);
+        lastInterval = Arrays.copyOf(lastInterval, capacity);
+    }
+    
+    private static long key(int playerSlot, CosmeticType type) {
+        return ((long) playerSlot << 8) | type.ordinal();
+    }
+    
+    public void clear() {
+        indices.clear();
+        size = 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Animations advanced in the last tick
+     */
+    public int getLastTickUpdated() {
+        return lastTickUpdated;
+    }
+    
+    /**
+     * Animations whose update was deferred in the last tick because they are far or hidden
+     */
+    public int getLastTickSkipped() {
+        return lastTickSkipped;
+    }
+}
@@ -0,0 +1,138 @@
+package com.minestat.client.cosmetics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decoded model and texture of a cosmetic, shared by every player wearing it
+ */
+public class CosmeticAsset {
+    
+    private static final Logger LOGGER = LogManager.getLogger(CosmeticAsset.class);
+    
+    // Shown when a cosmetic ships without a texture
+    private static final int PLACEHOLDER_SIZE = 16;
+    
+    private final String cosmeticId;
+    private final float[] model;
+    private final int[] pixels;
+    private final int textureWidth;
+    private final int textureHeight;
+    
+    public CosmeticAsset(String cosmeticId, float[] model, int[] pixels, int textureWidth, int textureHeight) {
+        this.cosmeticId = cosmeticId;
+        this.model = model;
+        this.pixels = pixels;
+        this.textureWidth = textureWidth;
+        this.textureHeight = textureHeight;
+    }
+    
+    /**
+     * Load a cosmetic's texture from the classpath and build its model
+     */
+    public static CosmeticAsset load(Cosmetic cosmetic) throws IOException {
+        int[] pixels;
+        int width;
+        int height;
+        
+        try (InputStream in = CosmeticAsset.class.getResourceAsStream("/assets/minestat/" + cosmetic.getTexture())) {
+            BufferedImage image = in != null ? ImageIO.read(in) : null;
+            
+            if (image != null) {
+                width = image.getWidth();
+                height = image.getHeight();
+                pixels = image.getRGB(0, 0, width, height, null, 0, width);
+            } else {
+                LOGGER.debug("No texture for cosmetic {}, using placeholder", cosmetic.getId());
+                width = PLACEHOLDER_SIZE;
+                height = PLACEHOLDER_SIZE;
+                pixels = placeholderPixels();
+            }
+        }
+        
+        return new CosmeticAsset(cosmetic.getId(), buildModel(cosmetic.getType()), pixels, width, height);
+    }
+    
+    /**
+     * Model vertices as x, y, z triples in player-relative units
+     */
+    private static float[] buildModel(CosmeticType type) {
+        switch (type) {
+            case CAPE:
+                return quad(-0.3125f, 0.0f, 0.125f, 0.625f, 1.0f);
+            case WINGS:
+                float[] left = quad(-1.0f, 0.5f, 0.15f, 0.9f, 0.8f);
+                float[] right = quad(0.1f, 0.5f, 0.15f, 0.9f, 0.8f);
+                float[] wings = new float[left.length + right.length];
+                System.arraycopy(left, 0, wings, 0, left.length);
+                System.arraycopy(right, 0, wings, left.length, right.length);
+                return wings;
+            case HAT:
+                return box(0.55f, 0.35f);
+            default:
+                // Particle effects and emotes have no model
+                return new float[0];
+        }
+    }
+    
+    private static float[] quad(float x, float y, float z, float width, float height) {
+        return new float[] {
+            x, y, z,
+            x + width, y, z,
+            x + width, y + height, z,
+            x, y + height, z
+        };
+    }
+    
+    private static float[] box(float width, float height) {
+        float h = width / 2.0f;
+        return new float[] {
+            -h, 0, -h,  h, 0, -h,  h, 0, h,  -h, 0, h,
+            -h, height, -h,  h, height, -h,  h, height, h,  -h, height, h
+        };
+    }
+    
+    private static int[] placeholderPixels() {
+        int[] pixels = new int[PLACEHOLDER_SIZE * PLACEHOLDER_SIZE];
+        for (int y = 0; y < PLACEHOLDER_SIZE; y++) {
+            for (int x = 0; x < PLACEHOLDER_SIZE; x++) {
+                // Magenta and black checkerboard, like a missing Minecraft texture
+                boolean magenta = ((x >> 3) + (y >> 3) & 1) == 0;
+                pixels[y * PLACEHOLDER_SIZE + x] = magenta ? 0xFFF800F8 : 0xFF000000;
+            }
+        }
+        return pixels;
+    }
+    
+    public String getCosmeticId() {
+        return cosmeticId;
+    }
+    
+    public float[] getModel() {
+        return model;
+    }
+    
+    public int[] getPixels() {
+        return pixels;
+    }
+    
+    public int getTextureWidth() {
+        return textureWidth;
+    }
+    
+    public int getTextureHeight() {
+        return textureHeight;
+    }
+    
+    /**
+     * Approximate memory held by the asset
+     */
+    public long getSizeBytes() {
+        return 4L * model.length + 4L * pixels.length + 64;
+    }
+}
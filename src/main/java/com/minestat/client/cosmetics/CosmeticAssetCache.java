@@ -0,0 +1,256 @@
+package com.minestat.client.cosmetics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared cache of decoded cosmetic assets keyed by cosmetic id.
+ * Each wearer holds a reference, so an asset worn by many players is loaded once.
+ * Assets load on a background thread and unreferenced assets are evicted least recently
+ * used first once the memory cap is exceeded. Assets in use are never evicted, so the
+ * cache can exceed the cap while they are worn.
+ * Thread-safe, getIfLoaded() never blocks on loading.
+ */
+public class CosmeticAssetCache {
+    
+    private static final Logger LOGGER = LogManager.getLogger(CosmeticAssetCache.class);
+    
+    /**
+     * Decodes the assets of a cosmetic, called on the loader thread
+     */
+    public interface AssetLoader {
+        CosmeticAsset load(Cosmetic cosmetic) throws IOException;
+    }
+    
+    private final AssetLoader loader;
+    private final ExecutorService executor;
+    private final long maxBytes;
+    
+    // Lock-free reads from the render thread, changes happen under the cache lock
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    // Unreferenced entries in least recently used order
+    private final LinkedHashMap<String, Entry> idle = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private long usedBytes = 0;
+    
+    // Statistics
+    private long hits = 0;
+    private long loads = 0;
+    private long failures = 0;
+    private long evictions = 0;
+    
+    public CosmeticAssetCache(long maxBytes, AssetLoader loader) {
+        this.maxBytes = maxBytes;
+        this.loader = loader;
+        
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Minestat-CosmeticLoader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+    
+    /**
+     * Take a reference to a cosmetic's assets for one wearer, loading them if needed.
+     * Every acquire must be paired with a release.
+     * @return future completing with the asset, already complete if it was cached
+     */
+    public synchronized CompletableFuture<CosmeticAsset> acquire(Cosmetic cosmetic) {
+        Entry entry = entries.get(cosmetic.getId());
+        
+        if (entry != null && !entry.future.isCompletedExceptionally()) {
+            hits++;
+            if (entry.references++ == 0) {
+                idle.remove(entry.cosmeticId);
+            }
+            return entry.future;
+        }
+        
+        // Not cached or the last load failed, current wearers move to the retry
+        Entry retry = new Entry(cosmetic.getId());
+        retry.references = entry != null ? entry.references + 1 : 1;
+        entries.put(retry.cosmeticId, retry);
+        entry = retry;
+        loads++;
+        
+        Entry loading = entry;
+        try {
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    return loader.load(cosmetic);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor).whenComplete((asset, error) -> loaded(loading, asset, error));
+        } catch (RejectedExecutionException e) {
+            loaded(loading, null, e);
+        }
+        
+        return entry.future;
+    }
+    
+    private synchronized void loaded(Entry entry, CosmeticAsset asset, Throwable error) {
+        if (error != null) {
+            failures++;
+            LOGGER.warn("Failed to load assets of cosmetic {}", entry.cosmeticId, error);
+            
+            // Kept for its wearers' releases, the next acquire retries the load
+            entry.future.completeExceptionally(error);
+            if (entry.references == 0 && entries.get(entry.cosmeticId) == entry) {
+                entries.remove(entry.cosmeticId);
+            }
+            return;
+        }
+        
+        entry.future.complete(asset);
+        
+        // Dropped while loading, e.g. by shutdown(), so it must not count against the cache
+        if (entries.get(entry.cosmeticId) != entry) {
+            return;
+        }
+        
+        entry.sizeBytes = asset.getSizeBytes();
+        usedBytes += entry.sizeBytes;
+        
+        LOGGER.debug("Loaded assets of cosmetic {} ({} bytes)", entry.cosmeticId, entry.sizeBytes);
+        evictIdle();
+    }
+    
+    /**
+     * Drop one wearer's reference. Unreferenced assets stay cached until memory is needed.
+     */
+    public synchronized void release(String cosmeticId) {
+        Entry entry = entries.get(cosmeticId);
+        
+        if (entry == null || entry.references == 0) {
+            LOGGER.warn("Released cosmetic assets that were not acquired: {}", cosmeticId);
+            return;
+        }
+        
+        if (--entry.references == 0) {
+            if (entry.future.isCompletedExceptionally()) {
+                entries.remove(cosmeticId);
+                return;
+            }
+            idle.put(cosmeticId, entry);
+            evictIdle();
+        }
+    }
+    
+    /**
+     * Get a cosmetic's assets if they finished loading
+     * @return the asset, or null while it is loading or if it is not cached
+     */
+    public CosmeticAsset getIfLoaded(String cosmeticId) {
+        Entry entry = entries.get(cosmeticId);
+        return entry != null ? entry.future.getNow(null) : null;
+    }
+    
+    private void evictIdle() {
+        Iterator<Entry> iterator = idle.values().iterator();
+        
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            
+            // Still loading, evicting it would free nothing
+            if (!entry.future.isDone()) {
+                continue;
+            }
+            
+            iterator.remove();
+            entries.remove(entry.cosmeticId);
+            usedBytes -= entry.sizeBytes;
+            evictions++;
+        }
+    }
+    
+    /**
+     * Drop every unreferenced asset
+     */
+    public synchronized void trim() {
+        Iterator<Entry> iterator = idle.values().iterator();
+        
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            
+            // Still loading, its size is counted once the load completes
+            if (!entry.future.isDone()) {
+                continue;
+            }
+            
+            iterator.remove();
+            entries.remove(entry.cosmeticId);
+            usedBytes -= entry.sizeBytes;
+            evictions++;
+        }
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+        
+        synchronized (this) {
+            entries.clear();
+            idle.clear();
+            usedBytes = 0;
+        }
+        
+        LOGGER.info("Cosmetic asset cache stopped ({} loads, {} hits)", loads, hits);
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    /**
+     * Wearers currently holding a cosmetic's assets
+     */
+    public synchronized int getReferenceCount(String cosmeticId) {
+        Entry entry = entries.get(cosmeticId);
+        return entry != null ? entry.references : 0;
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getLoads() {
+        return loads;
+    }
+    
+    public synchronized long getFailures() {
+        return failures;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    private static class Entry {
+        final String cosmeticId;
+        final CompletableFuture<CosmeticAsset> future = new CompletableFuture<>();
+        int references = 0;
+        long sizeBytes = 0;
+        
+        Entry(String cosmeticId) {
+            this.cosmeticId = cosmeticId;
+        }
+    }
+}
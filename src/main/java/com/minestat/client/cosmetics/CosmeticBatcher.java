@@ -0,0 +1,160 @@
+package com.minestat.client.cosmetics;
+
+import java.util.*;
+
+/**
+ * Collects the cosmetics visible in a frame and groups them by type and texture,
+ * so each group is drawn with one instanced submission instead of one draw per cosmetic.
+ * Groups and their instance arrays are reused across frames.
+ * Not thread-safe, use it from the render thread only.
+ */
+public class CosmeticBatcher {
+    
+    /**
+     * Floats per instance: x, y, z, yaw, pitch, animation phase
+     */
+    public static final int INSTANCE_STRIDE = 6;
+    
+    /**
+     * Receives one instanced submission per group
+     */
+    public interface GroupRenderer {
+        void submit(CosmeticType type, String texture, float[] instances, int count);
+    }
+    
+    private static final Comparator<Group> GROUP_ORDER = (a, b) -> {
+        int byType = a.type.compareTo(b.type);
+        return byType != 0 ? byType : a.texture.compareTo(b.texture);
+    };
+    
+    private final Map<CosmeticType, Map<String, Group>> groupsByType = new EnumMap<>(CosmeticType.class);
+    private final List<Group> groups = new ArrayList<>();
+    private boolean sorted = true;
+    
+    // Statistics of the last flushed frame and totals
+    private int lastFrameInstances = 0;
+    private int lastFrameSubmissions = 0;
+    private long totalInstances = 0;
+    private long totalSubmissions = 0;
+    
+    /**
+     * Queue a cosmetic instance for this frame
+     * @param phase animation phase in cycles, 0 for cosmetics that are not animated
+     */
+    public void add(Cosmetic cosmetic, float x, float y, float z, float yaw, float pitch, float phase) {
+        Map<String, Group> byTexture = groupsByType.get(cosmetic.getType());
+        if (byTexture == null) {
+            byTexture = new HashMap<>();
+            groupsByType.put(cosmetic.getType(), byTexture);
+        }
+        
+        Group group = byTexture.get(cosmetic.getTexture());
+        if (group == null) {
+            group = new Group(cosmetic.getType(), cosmetic.getTexture());
+            byTexture.put(group.texture, group);
+            groups.add(group);
+            sorted = false;
+        }
+        
+        group.add(x, y, z, yaw, pitch, phase);
+    }
+    
+    /**
+     * Submit every non-empty group and start a new frame.
+     * Groups are ordered by type, then texture, so model and texture changes are minimal.
+     * @return number of submissions
+     */
+    public int flush(GroupRenderer renderer) {
+        if (!sorted) {
+            groups.sort(GROUP_ORDER);
+            sorted = true;
+        }
+        
+        int instances = 0;
+        int submissions = 0;
+        
+        for (int i = 0; i < groups.size(); i++) {
+            Group group = groups.get(i);
+            if (group.count == 0) {
+                continue;
+            }
+            
+            renderer.submit(group.type, group.texture, group.instances, group.count);
+            instances += group.count;
+            submissions++;
+            group.count = 0;
+        }
+        
+        lastFrameInstances = instances;
+        lastFrameSubmissions = submissions;
+        totalInstances += instances;
+        totalSubmissions += submissions;
+        
+        return submissions;
+    }
+    
+    /**
+     * Drop queued instances and forget all groups, e.g. after the cosmetic catalog changed
+     */
+    public void clear() {
+        groupsByType.clear();
+        groups.clear();
+        sorted = true;
+    }
+    
+    /**
+     * Draws the last frame would have needed without batching, one per cosmetic
+     */
+    public int getLastFrameInstances() {
+        return lastFrameInstances;
+    }
+    
+    /**
+     * Instanced submissions issued for the last frame
+     */
+    public int getLastFrameSubmissions() {
+        return lastFrameSubmissions;
+    }
+    
+    public long getTotalInstances() {
+        return totalInstances;
+    }
+    
+    public long getTotalSubmissions() {
+        return totalSubmissions;
+    }
+    
+    /**
+     * Average cosmetics drawn per submission, 1.0 means batching saved nothing
+     */
+    public double getBatchingRatio() {
+        return totalSubmissions > 0 ? totalInstances / (double) totalSubmissions : 0.0;
+    }
+    
+    private static class Group {
+        final CosmeticType type;
+        final String texture;
+        float[] instances = new float[8 * INSTANCE_STRIDE];
+        int count = 0;
+        
+        Group(CosmeticType type, String texture) {
+            this.type = type;
+            this.texture = texture;
+        }
+        
+        void add(float x, float y, float z, float yaw, float pitch, float phase) {
+            int offset = count * INSTANCE_STRIDE;
+            if (offset + INSTANCE_STRIDE > instances.length) {
+                instances = Arrays.copyOf(instances, instances.length * 2);
+            }
+            
+            instances[offset] = x;
+            instances[offset + 1] = y;
+            instances[offset + 2] = z;
+            instances[offset + 3] = yaw;
+            instances[offset + 4] = pitch;
+            instances[offset + 5] = phase;
+            count++;
+        }
+    }
+}
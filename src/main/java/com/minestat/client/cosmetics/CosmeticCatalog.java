@@ -0,0 +1,288 @@
+package com.minestat.client.cosmetics;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Cosmetic catalog loaded from a JSON resource.
+ * The first load parses and validates the JSON and compiles it into a binary snapshot;
+ * later loads memory-map the snapshot instead, as long as the JSON is unchanged.
+ */
+public class CosmeticCatalog {
+    
+    private static final Logger LOGGER = LogManager.getLogger(CosmeticCatalog.class);
+    
+    public static final String DEFAULT_RESOURCE = "/cosmetics/catalog.json";
+    
+    // Snapshot header: magic, format version, CRC32 of the JSON source, cosmetic and featured counts
+    private static final int MAGIC = 0x4D534343;
+    private static final short FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 4 + 4;
+    
+    private static final CosmeticType[] TYPES = CosmeticType.values();
+    
+    private final List<Cosmetic> cosmetics;
+    private final List<Cosmetic> featured;
+    
+    private CosmeticCatalog(List<Cosmetic> cosmetics, List<Cosmetic> featured) {
+        this.cosmetics = Collections.unmodifiableList(cosmetics);
+        this.featured = Collections.unmodifiableList(featured);
+    }
+    
+    /**
+     * Catalog without cosmetics, used when the catalog cannot be loaded
+     */
+    public static CosmeticCatalog empty() {
+        return new CosmeticCatalog(new ArrayList<>(), new ArrayList<>());
+    }
+    
+    /**
+     * Load the catalog, from the snapshot if it was compiled from the same source
+     * @param resource classpath resource holding the JSON catalog
+     * @param snapshotFile where the compiled snapshot is kept between starts
+     */
+    public static CosmeticCatalog load(String resource, Path snapshotFile) throws IOException {
+        long start = System.nanoTime();
+        byte[] source = readResource(resource);
+        
+        CRC32 crc = new CRC32();
+        crc.update(source);
+        long checksum = crc.getValue();
+        
+        CosmeticCatalog catalog = readSnapshot(snapshotFile, checksum);
+        boolean compiled = catalog == null;
+        
+        if (compiled) {
+            catalog = parse(new String(source, StandardCharsets.UTF_8), resource);
+            writeSnapshot(catalog, snapshotFile, checksum);
+        }
+        
+        LOGGER.info("Loaded {} cosmetics from {} in {}ms", catalog.cosmetics.size(),
+                    compiled ? resource : "snapshot", (System.nanoTime() - start) / 1_000_000);
+        return catalog;
+    }
+    
+    private static byte[] readResource(String resource) throws IOException {
+        try (InputStream in = CosmeticCatalog.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new FileNotFoundException("Cosmetic catalog not found: " + resource);
+            }
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+    
+    /**
+     * Parse and validate the JSON catalog
+     */
+    static CosmeticCatalog parse(String json, String sourceName) throws IOException {
+        try {
+            JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+            JsonArray entries = root.getAsJsonArray("cosmetics");
+            if (entries == null) {
+                throw new IOException(sourceName + ": missing \"cosmetics\" array");
+            }
+            
+            List<Cosmetic> cosmetics = new ArrayList<>(entries.size());
+            Map<String, Cosmetic> byId = new HashMap<>();
+            
+            for (int i = 0; i < entries.size(); i++) {
+                Cosmetic cosmetic = parseCosmetic(entries.get(i).getAsJsonObject(), sourceName, i);
+                if (byId.put(cosmetic.getId(), cosmetic) != null) {
+                    throw new IOException(sourceName + ": duplicate cosmetic id " + cosmetic.getId());
+                }
+                cosmetics.add(cosmetic);
+            }
+            
+            List<Cosmetic> featured = new ArrayList<>();
+            JsonArray featuredIds = root.getAsJsonArray("featured");
+            if (featuredIds != null) {
+                for (JsonElement element : featuredIds) {
+                    Cosmetic cosmetic = byId.get(element.getAsString());
+                    if (cosmetic == null) {
+                        throw new IOException(sourceName + ": featured cosmetic " + element.getAsString() + " does not exist");
+                    }
+                    featured.add(cosmetic);
+                }
+            }
+            
+            return new CosmeticCatalog(cosmetics, featured);
+        } catch (JsonParseException | IllegalStateException | ClassCastException
+                 | NumberFormatException | UnsupportedOperationException e) {
+            // Wrong value types, e.g. a non-numeric price or an object in "featured"
+            throw new IOException(sourceName + ": invalid cosmetic catalog", e);
+        }
+    }
+    
+    private static Cosmetic parseCosmetic(JsonObject entry, String sourceName, int index) throws IOException {
+        String id = getString(entry, "id", null);
+        String name = getString(entry, "name", null);
+        String typeName = getString(entry, "type", null);
+        
+        if (id == null || id.isEmpty() || name == null || typeName == null) {
+            throw new IOException(sourceName + ": cosmetic " + index + " needs an id, name and type");
+        }
+        
+        CosmeticType type;
+        try {
+            type = CosmeticType.valueOf(typeName);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(sourceName + ": cosmetic " + id + " has unknown type " + typeName);
+        }
+        
+        int price = entry.has("price") ? entry.get("price").getAsInt() : 0;
+        if (price < 0) {
+            throw new IOException(sourceName + ": cosmetic " + id + " has a negative price");
+        }
+        
+        String description = getString(entry, "description", "");
+        boolean animated = entry.has("animated") && entry.get("animated").getAsBoolean();
+        
+        return new Cosmetic(id, name, type, price, description, animated);
+    }
+    
+    private static String getString(JsonObject entry, String key, String fallback) {
+        JsonElement element = entry.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsString() : fallback;
+    }
+    
+    /**
+     * @return the catalog in the snapshot, or null if there is none or it was compiled from other source
+     */
+    private static CosmeticCatalog readSnapshot(Path file, long checksum) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Check the header before mapping, a stale snapshot is replaced and must not stay mapped
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // Keep reading until the header is complete
+            }
+            header.flip();
+            
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC
+                || header.getShort() != FORMAT_VERSION || header.getLong() != checksum) {
+                LOGGER.info("Cosmetic catalog changed, recompiling snapshot");
+                return null;
+            }
+            
+            int count = header.getInt();
+            int featuredCount = header.getInt();
+            
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, channel.size() - HEADER_BYTES);
+            
+            List<Cosmetic> cosmetics = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                CosmeticType type = TYPES[buffer.get()];
+                boolean animated = buffer.get() != 0;
+                int price = buffer.getInt();
+                String id = readString(buffer);
+                String name = readString(buffer);
+                String description = readString(buffer);
+                cosmetics.add(new Cosmetic(id, name, type, price, description, animated));
+            }
+            
+            List<Cosmetic> featured = new ArrayList<>(featuredCount);
+            for (int i = 0; i < featuredCount; i++) {
+                featured.add(cosmetics.get(buffer.getInt()));
+            }
+            
+            return new CosmeticCatalog(cosmetics, featured);
+        } catch (IOException | RuntimeException e) {
+            // Truncated or corrupt, the source is still there to rebuild from
+            LOGGER.warn("Ignoring unreadable cosmetic catalog snapshot {}", file, e);
+            return null;
+        }
+    }
+    
+    private static void writeSnapshot(CosmeticCatalog catalog, Path file, long checksum) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES + catalog.cosmetics.size() * 48);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeLong(checksum);
+            out.writeInt(catalog.cosmetics.size());
+            out.writeInt(catalog.featured.size());
+            
+            Map<Cosmetic, Integer> indices = new IdentityHashMap<>();
+            for (Cosmetic cosmetic : catalog.cosmetics) {
+                indices.put(cosmetic, indices.size());
+                out.writeByte(cosmetic.getType().ordinal());
+                out.writeByte(cosmetic.isAnimated() ? 1 : 0);
+                out.writeInt(cosmetic.getPrice());
+                writeString(out, cosmetic.getId());
+                writeString(out, cosmetic.getName());
+                writeString(out, cosmetic.getDescription());
+            }
+            for (Cosmetic cosmetic : catalog.featured) {
+                out.writeInt(indices.get(cosmetic));
+            }
+            out.flush();
+            
+            // Write aside and move into place so a crash never leaves a half-written snapshot
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write cosmetic catalog snapshot {}", file, e);
+        }
+    }
+    
+    // Strings are stored as a length-prefixed UTF-8 byte sequence
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String too long for the catalog snapshot: " + value.substring(0, 32) + "...");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * All cosmetics in catalog order
+     */
+    public List<Cosmetic> getCosmetics() {
+        return cosmetics;
+    }
+    
+    /**
+     * Cosmetics the store highlights
+     */
+    public List<Cosmetic> getFeatured() {
+        return featured;
+    }
+}
@@ -1,15 +1,106 @@
 package com.minestat.client.cosmetics;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Manages user's cosmetic inventory
+ * Queries are answered from an index by type, price band and owned state. The index and its
+ * immutable views are rebuilt lazily after the catalog or ownership changes, so repeated
+ * queries from the UI neither scan the catalog nor allocate.
  */
 public class CosmeticInventory {
     
+    /**
+     * Price ranges the store groups cosmetics by
+     */
+    public enum PriceBand {
+        FREE(0, 0),
+        LOW(1, 199),
+        MEDIUM(200, 499),
+        HIGH(500, Integer.MAX_VALUE);
+        
+        private static final PriceBand[] BANDS = values();
+        
+        private final int minPrice;
+        private final int maxPrice;
+        
+        PriceBand(int minPrice, int maxPrice) {
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+        
+        public static PriceBand of(int price) {
+            for (PriceBand band : BANDS) {
+                if (price <= band.maxPrice) {
+                    return band;
+                }
+            }
+            return HIGH;
+        }
+        
+        public int getMinPrice() {
+            return minPrice;
+        }
+        
+        public int getMaxPrice() {
+            return maxPrice;
+        }
+    }
+    
+    /**
+     * One page of query results
+     */
+    public static class Page {
+        private final List<Cosmetic> items;
+        private final int page;
+        private final int pageCount;
+        private final int totalCount;
+        
+        Page(List<Cosmetic> items, int page, int pageCount, int totalCount) {
+            this.items = items;
+            this.page = page;
+            this.pageCount = pageCount;
+            this.totalCount = totalCount;
+        }
+        
+        public List<Cosmetic> getItems() {
+            return items;
+        }
+        
+        public int getPage() {
+            return page;
+        }
+        
+        public int getPageCount() {
+            return pageCount;
+        }
+        
+        public int getTotalCount() {
+            return totalCount;
+        }
+        
+        public boolean hasNext() {
+            return page + 1 < pageCount;
+        }
+    }
+    
+    // Stable order for paging: type, then price, then id
+    private static final Comparator<Cosmetic> CATALOG_ORDER = (a, b) -> {
+        int byType = a.getType().compareTo(b.getType());
+        if (byType != 0) {
+            return byType;
+        }
+        int byPrice = Integer.compare(a.getPrice(), b.getPrice());
+        return byPrice != 0 ? byPrice : a.getId().compareTo(b.getId());
+    };
+    
     private final Map<String, Cosmetic> cosmetics;
     private final Set<String> ownedCosmetics;
     
+    // Rebuilt on the next query after a change, null while stale
+    private volatile Index index;
+    
     public CosmeticInventory() {
         this.cosmetics = new HashMap<>();
         this.ownedCosmetics = new HashSet<>();
@@ -18,79 +109,195 @@ public class CosmeticInventory {
     /**
      * Add a cosmetic to the available cosmetics
      */
-    public void addCosmetic(Cosmetic cosmetic) {
+    public synchronized void addCosmetic(Cosmetic cosmetic) {
         cosmetics.put(cosmetic.getId(), cosmetic);
         
         // Free cosmetics are automatically owned
         if (cosmetic.getPrice() == 0) {
             ownedCosmetics.add(cosmetic.getId());
         }
+        index = null;
     }
     
     /**
-     * Purchase a cosmetic
+     * Mark a cosmetic as owned, purchases go through PurchaseEngine which charges for it
+     * @return true if the cosmetic exists and was not owned before
      */
-    public boolean purchaseCosmetic(String cosmeticId, int userCoins) {
-        Cosmetic cosmetic = cosmetics.get(cosmeticId);
-        
-        if (cosmetic == null) {
+    public synchronized boolean grantCosmetic(String cosmeticId) {
+        if (!cosmetics.containsKey(cosmeticId) || !ownedCosmetics.add(cosmeticId)) {
             return false;
         }
         
-        if (ownedCosmetics.contains(cosmeticId)) {
-            return false; // Already owned
-        }
-        
-        if (userCoins >= cosmetic.getPrice()) {
-            ownedCosmetics.add(cosmeticId);
-            return true;
-        }
-        
-        return false;
+        index = null;
+        return true;
     }
     
     /**
      * Check if user owns a cosmetic
      */
-    public boolean ownsCosmetic(String cosmeticId) {
+    public synchronized boolean ownsCosmetic(String cosmeticId) {
         return ownedCosmetics.contains(cosmeticId);
     }
     
     /**
      * Get a cosmetic by ID
      */
-    public Cosmetic getCosmetic(String id) {
+    public synchronized Cosmetic getCosmetic(String id) {
         return cosmetics.get(id);
     }
     
     /**
-     * Get all cosmetics of a specific type
+     * Get all cosmetics of a specific type, as an immutable view
      */
     public List<Cosmetic> getCosmeticsByType(CosmeticType type) {
-        List<Cosmetic> result = new ArrayList<>();
+        return query(type, null, null);
+    }
+    
+    /**
+     * Get all owned cosmetics, as an immutable view
+     */
+    public List<Cosmetic> getOwnedCosmetics() {
+        return query(null, null, Boolean.TRUE);
+    }
+    
+    /**
+     * Get all cosmetics in a price band, as an immutable view
+     */
+    public List<Cosmetic> getCosmeticsByPriceBand(PriceBand band) {
+        return query(null, band, null);
+    }
+    
+    /**
+     * Get every cosmetic matching all given filters, null filters match everything
+     * @param owned true for owned cosmetics only, false for cosmetics not owned yet
+     * @return immutable view in type, price and id order, cached until the inventory changes
+     */
+    public List<Cosmetic> query(CosmeticType type, PriceBand band, Boolean owned) {
+        return getIndex().get(type, band, owned);
+    }
+    
+    /**
+     * Get one page of the cosmetics matching all given filters, see query()
+     * @param page zero-based page number, pages past the end are empty
+     */
+    public Page query(CosmeticType type, PriceBand band, Boolean owned, int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page " + page + " of size " + pageSize);
+        }
         
-        for (Cosmetic cosmetic : cosmetics.values()) {
-            if (cosmetic.getType() == type) {
-                result.add(cosmetic);
-            }
+        List<Cosmetic> all = query(type, band, owned);
+        int pageCount = (all.size() + pageSize - 1) / pageSize;
+        int from = (int) Math.min((long) page * pageSize, all.size());
+        int to = Math.min(from + pageSize, all.size());
+        
+        return new Page(all.subList(from, to), page, pageCount, all.size());
+    }
+    
+    /**
+     * Number of cosmetics in the catalog
+     */
+    public synchronized int size() {
+        return cosmetics.size();
+    }
+    
+    private Index getIndex() {
+        Index current = index;
+        if (current != null) {
+            return current;
         }
         
-        return result;
+        synchronized (this) {
+            if (index == null) {
+                index = new Index(cosmetics.values(), ownedCosmetics);
+            }
+            return index;
+        }
     }
     
     /**
-     * Get all owned cosmetics
+     * Catalog snapshot partitioned by type, price band and owned state.
+     * Combined filters are built from the partitions on first use and kept.
      */
-    public List<Cosmetic> getOwnedCosmetics() {
-        List<Cosmetic> result = new ArrayList<>();
+    private static class Index {
+        private static final CosmeticType[] TYPES = CosmeticType.values();
+        private static final PriceBand[] BANDS = PriceBand.values();
+        
+        // Cells per filter: each value plus "any"
+        private static final int TYPE_CELLS = TYPES.length + 1;
+        private static final int BAND_CELLS = BANDS.length + 1;
+        private static final int OWNED_CELLS = 3;
+        
+        // Cosmetics per exact type, band and owned state, in catalog order
+        private final List<List<Cosmetic>> partitions;
         
-        for (String id : ownedCosmetics) {
-            Cosmetic cosmetic = cosmetics.get(id);
-            if (cosmetic != null) {
-                result.add(cosmetic);
+        // Views per filter combination, built lazily; racing builds produce equal lists
+        private final AtomicReferenceArray<List<Cosmetic>> views =
+            new AtomicReferenceArray<>(TYPE_CELLS * BAND_CELLS * OWNED_CELLS);
+        
+        Index(Collection<Cosmetic> cosmetics, Set<String> owned) {
+            List<Cosmetic> sorted = new ArrayList<>(cosmetics);
+            sorted.sort(CATALOG_ORDER);
+            
+            partitions = new ArrayList<>(TYPES.length * BANDS.length * 2);
+            for (int i = 0; i < TYPES.length * BANDS.length * 2; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            
+            for (Cosmetic cosmetic : sorted) {
+                int cell = (cosmetic.getType().ordinal() * BANDS.length + PriceBand.of(cosmetic.getPrice()).ordinal()) * 2
+                    + (owned.contains(cosmetic.getId()) ? 1 : 0);
+                partitions.get(cell).add(cosmetic);
+            }
+        }
+        
+        List<Cosmetic> get(CosmeticType type, PriceBand band, Boolean owned) {
+            int typeCell = type != null ? type.ordinal() : TYPES.length;
+            int bandCell = band != null ? band.ordinal() : BANDS.length;
+            int ownedCell = owned == null ? 2 : owned ? 1 : 0;
+            int key = (typeCell * BAND_CELLS + bandCell) * OWNED_CELLS + ownedCell;
+            
+            List<Cosmetic> view = views.get(key);
+            if (view == null) {
+                view = build(type, band, owned);
+                views.set(key, view);
             }
+            return view;
         }
         
-        return result;
+        private List<Cosmetic> build(CosmeticType type, PriceBand band, Boolean owned) {
+            List<Cosmetic> result = new ArrayList<>();
+            
+            // Visiting partitions in type and band order keeps catalog order,
+            // owned and unowned halves of a band are merged
+            for (CosmeticType t : TYPES) {
+                if (type != null && t != type) {
+                    continue;
+                }
+                for (PriceBand b : BANDS) {
+                    if (band != null && b != band) {
+                        continue;
+                    }
+                    
+                    int cell = (t.ordinal() * BANDS.length + b.ordinal()) * 2;
+                    if (owned == null) {
+                        merge(partitions.get(cell), partitions.get(cell + 1), result);
+                    } else {
+                        result.addAll(partitions.get(cell + (owned ? 1 : 0)));
+                    }
+                }
+            }
+            
+            return Collections.unmodifiableList(result);
+        }
+        
+        private static void merge(List<Cosmetic> a, List<Cosmetic> b, List<Cosmetic> out) {
+            int i = 0;
+            int j = 0;
+            while (i < a.size() && j < b.size()) {
+                out.add(CATALOG_ORDER.compare(a.get(i), b.get(j)) <= 0 ? a.get(i++) : b.get(j++));
+            }
+            out.addAll(a.subList(i, a.size()));
+            out.addAll(b.subList(j, b.size()));
+        }
     }
 }
@@ -0,0 +1,252 @@
+package com.minestat.client.cosmetics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves other players' cosmetic profiles in the background.
+ * Lookups are collected for a short delay and sent to the source in bulk requests,
+ * concurrent lookups of the same player share one in-flight request, and players
+ * without cosmetics are remembered for a while so they are not asked for again.
+ * Thread-safe, lookup() never blocks.
+ */
+public class CosmeticLookupService {
+    
+    private static final Logger LOGGER = LogManager.getLogger(CosmeticLookupService.class);
+    
+    /**
+     * Fetches the profiles of many players in one request, called on a lookup thread
+     */
+    public interface ProfileSource {
+        /**
+         * @return profiles of the players that have cosmetics, players without any are left out
+         */
+        Map<UUID, CosmeticProfile> fetch(Set<UUID> players) throws IOException;
+    }
+    
+    private final ProfileSource source;
+    private final int maxBatchSize;
+    private final long batchDelayMillis;
+    private final long negativeTtlMillis;
+    private final ScheduledExecutorService executor;
+    
+    private final Map<UUID, CompletableFuture<CosmeticProfile>> inFlight = new ConcurrentHashMap<>();
+    
+    // Players known to have no cosmetics, with the time the entry expires
+    private final Map<UUID, Long> misses = new ConcurrentHashMap<>();
+    
+    // Lookups waiting for the next batch, guarded by itself
+    private final List<UUID> pending = new ArrayList<>();
+    
+    // Statistics
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    
+    /**
+     * @param maxBatchSize players per request, a full batch is sent without waiting
+     * @param batchDelayMillis how long lookups are collected before a batch is sent
+     * @param negativeTtlMillis how long a player without cosmetics is remembered
+     */
+    public CosmeticLookupService(ProfileSource source, int maxBatchSize, long batchDelayMillis, long negativeTtlMillis) {
+        this.source = source;
+        this.maxBatchSize = maxBatchSize;
+        this.batchDelayMillis = batchDelayMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "Minestat-CosmeticLookup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+    
+    /**
+     * Look up a player's cosmetics
+     * @return future completing with the player's profile, or null if the player has no cosmetics
+     */
+    public CompletableFuture<CosmeticProfile> lookup(UUID player) {
+        lookups.increment();
+        
+        Long expiry = misses.get(player);
+        if (expiry != null) {
+            if (System.currentTimeMillis() < expiry) {
+                negativeHits.increment();
+                return CompletableFuture.completedFuture(null);
+            }
+            misses.remove(player, expiry);
+        }
+        
+        CompletableFuture<CosmeticProfile> created = new CompletableFuture<>();
+        CompletableFuture<CosmeticProfile> existing = inFlight.putIfAbsent(player, created);
+        
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        
+        enqueue(player);
+        return created;
+    }
+    
+    /**
+     * Look up many players, e.g. everyone in a lobby that was just joined
+     */
+    public Map<UUID, CompletableFuture<CosmeticProfile>> lookupAll(Collection<UUID> players) {
+        Map<UUID, CompletableFuture<CosmeticProfile>> results = new HashMap<>();
+        for (UUID player : players) {
+            results.put(player, lookup(player));
+        }
+        return results;
+    }
+    
+    /**
+     * Forget that a player has no cosmetics, e.g. after it bought one
+     */
+    public void invalidate(UUID player) {
+        misses.remove(player);
+    }
+    
+    private void enqueue(UUID player) {
+        synchronized (pending) {
+            pending.add(player);
+            
+            if (pending.size() >= maxBatchSize) {
+                dispatch(drainPending());
+            } else if (pending.size() == 1) {
+                try {
+                    executor.schedule(this::flushPending, batchDelayMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Shut down, fail the lookups instead of leaving them pending forever
+                    fail(drainPending(), e);
+                }
+            }
+        }
+    }
+    
+    private void flushPending() {
+        List<UUID> batch;
+        synchronized (pending) {
+            batch = drainPending();
+        }
+        
+        if (!batch.isEmpty()) {
+            fetch(batch);
+        }
+    }
+    
+    private List<UUID> drainPending() {
+        List<UUID> batch = new ArrayList<>(pending);
+        pending.clear();
+        return batch;
+    }
+    
+    private void dispatch(List<UUID> batch) {
+        try {
+            executor.execute(() -> fetch(batch));
+        } catch (RejectedExecutionException e) {
+            fail(batch, e);
+        }
+    }
+    
+    private void fetch(List<UUID> batch) {
+        batches.increment();
+        
+        Map<UUID, CosmeticProfile> profiles;
+        try {
+            profiles = source.fetch(new HashSet<>(batch));
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            LOGGER.warn("Failed to look up cosmetics of {} players", batch.size(), e);
+            fail(batch, e);
+            return;
+        }
+        
+        long expiry = System.currentTimeMillis() + negativeTtlMillis;
+        for (UUID player : batch) {
+            CosmeticProfile profile = profiles.get(player);
+            if (profile == null) {
+                misses.put(player, expiry);
+            }
+            
+            CompletableFuture<CosmeticProfile> future = inFlight.remove(player);
+            if (future != null) {
+                future.complete(profile);
+            }
+        }
+        
+        LOGGER.debug("Looked up cosmetics of {} players, {} have some", batch.size(), profiles.size());
+    }
+    
+    private void fail(List<UUID> batch, Throwable error) {
+        for (UUID player : batch) {
+            // Failures are not cached, the next lookup tries again
+            CompletableFuture<CosmeticProfile> future = inFlight.remove(player);
+            if (future != null) {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+    
+    /**
+     * Drop expired entries of players without cosmetics
+     */
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        misses.values().removeIf(expiry -> expiry <= now);
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+        
+        synchronized (pending) {
+            fail(drainPending(), new CancellationException("Cosmetic lookup service stopped"));
+        }
+        fail(new ArrayList<>(inFlight.keySet()), new CancellationException("Cosmetic lookup service stopped"));
+        
+        LOGGER.info("Cosmetic lookup service stopped ({} lookups in {} batches)", lookups.sum(), batches.sum());
+    }
+    
+    public long getLookups() {
+        return lookups.sum();
+    }
+    
+    /**
+     * Lookups that joined a request already in flight for the same player
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+    
+    /**
+     * Lookups answered from the cache of players without cosmetics
+     */
+    public long getNegativeHits() {
+        return negativeHits.sum();
+    }
+    
+    /**
+     * Bulk requests sent to the source
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+    
+    public long getFailures() {
+        return failures.sum();
+    }
+    
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
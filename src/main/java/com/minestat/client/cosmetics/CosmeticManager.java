@@ -3,7 +3,11 @@ package com.minestat.client.cosmetics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages the cosmetics system including capes, wings, hats, particles, and emotes
@@ -12,49 +16,119 @@ public class CosmeticManager {
     
     private static final Logger LOGGER = LogManager.getLogger(CosmeticManager.class);
     
+    private static final long ASSET_CACHE_BYTES = 64L * 1024 * 1024;
+    
+    // Players not rendered for this long have left render range
+    private static final long PLAYER_IDLE_MILLIS = 5000;
+    
+    private static final int EMOTE_TICKS = 3 * CosmeticAnimator.TICKS_PER_SECOND;
+    
+    // Other players' profiles are looked up in batches of up to LOOKUP_BATCH_SIZE,
+    // players without cosmetics are not asked for again for NO_COSMETICS_TTL_MILLIS
+    private static final int LOOKUP_BATCH_SIZE = 50;
+    private static final long LOOKUP_DELAY_MILLIS = 50;
+    private static final long NO_COSMETICS_TTL_MILLIS = 5 * 60 * 1000;
+    private static final String PROFILE_FILE = "cosmetic_profiles.json";
+    private static final String CATALOG_SNAPSHOT_FILE = "cosmetic_catalog.bin";
+    private static final String PURCHASE_DB_FILE = "config/purchases.db";
+    
+    // Coins granted once on first start, the fixed transaction id keeps it from being granted again
+    private static final String STARTING_COINS_ID = "starting-coins";
+    private static final long STARTING_COINS = 1000;
+    
+    // The equipped cosmetics are kept as this profile, changes are written after PROFILE_WRITE_DELAY_MILLIS
+    private static final String ACTIVE_PROFILE = "default";
+    private static final String PROFILE_DIR = "profiles";
+    private static final long PROFILE_WRITE_DELAY_MILLIS = 2000;
+    
+    private CosmeticAssetCache assetCache;
+    private PlayerCosmeticRegistry players;
+    private CosmeticLookupService lookupService;
     private CosmeticInventory inventory;
     private CosmeticRenderer renderer;
     private CosmeticStore store;
+    private PurchaseLog purchaseLog;
+    private PurchaseEngine purchases;
+    private CosmeticProfileStore profileStore;
+    
+    // Profiles loaded or saved this session, others are read from the store on first use
     private Map<String, CosmeticProfile> profiles;
     
     private CosmeticProfile activeProfile;
+    private UUID localPlayer;
     
     public void initialize() {
         LOGGER.info("Initializing cosmetics system...");
         
         inventory = new CosmeticInventory();
-        renderer = new CosmeticRenderer();
-        store = new CosmeticStore();
+        assetCache = new CosmeticAssetCache(ASSET_CACHE_BYTES, CosmeticAsset::load);
+        players = new PlayerCosmeticRegistry(assetCache);
+        renderer = new CosmeticRenderer(assetCache, players);
         profiles = new HashMap<>();
+        profileStore = new CosmeticProfileStore(Paths.get("config", PROFILE_DIR), PROFILE_WRITE_DELAY_MILLIS);
+        
+        CosmeticCatalog catalog = loadCatalog();
+        for (Cosmetic cosmetic : catalog.getCosmetics()) {
+            inventory.addCosmetic(cosmetic);
+        }
+        purchases = openPurchases();
+        store = new CosmeticStore(catalog, purchases);
         
-        // Load default cosmetics
-        loadDefaultCosmetics();
+        // Offline stand-in for the cosmetics server
+        lookupService = new CosmeticLookupService(
+            new FileProfileSource(Paths.get("config", PROFILE_FILE), inventory),
+            LOOKUP_BATCH_SIZE, LOOKUP_DELAY_MILLIS, NO_COSMETICS_TTL_MILLIS);
         
-        // Create default profile
-        activeProfile = new CosmeticProfile("default");
+        // Restore the equipped cosmetics, after purchases so ownership is known
+        activeProfile = new CosmeticProfile(ACTIVE_PROFILE);
+        CosmeticProfile saved = profileStore.load(ACTIVE_PROFILE, inventory);
+        if (saved != null) {
+            activeProfile.copyFrom(saved);
+            for (Cosmetic cosmetic : activeProfile.getAllEquipped().values()) {
+                swapAssets(null, cosmetic);
+            }
+        }
     }
     
-    private void loadDefaultCosmetics() {
-        // Add default cosmetics to inventory
-        inventory.addCosmetic(new Cosmetic("none_cape", "None", CosmeticType.CAPE, 0));
-        inventory.addCosmetic(new Cosmetic("default_cape", "Default Cape", CosmeticType.CAPE, 0));
-        inventory.addCosmetic(new Cosmetic("red_cape", "Red Cape", CosmeticType.CAPE, 100));
-        
-        inventory.addCosmetic(new Cosmetic("none_wings", "None", CosmeticType.WINGS, 0));
-        inventory.addCosmetic(new Cosmetic("angel_wings", "Angel Wings", CosmeticType.WINGS, 500));
-        inventory.addCosmetic(new Cosmetic("demon_wings", "Demon Wings", CosmeticType.WINGS, 500));
-        
-        inventory.addCosmetic(new Cosmetic("none_hat", "None", CosmeticType.HAT, 0));
-        inventory.addCosmetic(new Cosmetic("top_hat", "Top Hat", CosmeticType.HAT, 200));
-        inventory.addCosmetic(new Cosmetic("crown", "Crown", CosmeticType.HAT, 300));
+    /**
+     * Load the catalog, from its compiled snapshot unless the catalog changed
+     */
+    private CosmeticCatalog loadCatalog() {
+        try {
+            return CosmeticCatalog.load(CosmeticCatalog.DEFAULT_RESOURCE, Paths.get("config", CATALOG_SNAPSHOT_FILE));
+        } catch (IOException e) {
+            LOGGER.error("Failed to load the cosmetic catalog, no cosmetics available", e);
+            return CosmeticCatalog.empty();
+        }
+    }
+    
+    /**
+     * Open the purchase log, restore the balance and owned cosmetics from it
+     * and grant the starting coins if this is the first start
+     */
+    private PurchaseEngine openPurchases() {
+        try {
+            purchaseLog = new PurchaseLog(PURCHASE_DB_FILE);
+        } catch (SQLException e) {
+            LOGGER.error("Failed to open purchase log, purchases will not be saved", e);
+            try {
+                purchaseLog = new PurchaseLog(":memory:");
+            } catch (SQLException inMemory) {
+                throw new IllegalStateException("SQLite is not available", inMemory);
+            }
+        }
         
-        inventory.addCosmetic(new Cosmetic("none_particle", "None", CosmeticType.PARTICLE, 0));
-        inventory.addCosmetic(new Cosmetic("hearts", "Hearts", CosmeticType.PARTICLE, 150));
-        inventory.addCosmetic(new Cosmetic("flames", "Flames", CosmeticType.PARTICLE, 200));
+        PurchaseEngine engine = new PurchaseEngine(inventory, purchaseLog);
+        try {
+            engine.restore();
+        } catch (SQLException e) {
+            LOGGER.error("Failed to restore purchases", e);
+        }
         
-        inventory.addCosmetic(new Cosmetic("none_emote", "None", CosmeticType.EMOTE, 0));
-        inventory.addCosmetic(new Cosmetic("wave", "Wave", CosmeticType.EMOTE, 50));
-        inventory.addCosmetic(new Cosmetic("dance", "Dance", CosmeticType.EMOTE, 100));
+        if (engine.credit(STARTING_COINS_ID, STARTING_COINS)) {
+            LOGGER.info("Granted {} starting coins", STARTING_COINS);
+        }
+        return engine;
     }
     
     /**
@@ -64,7 +138,11 @@ public class CosmeticManager {
         Cosmetic cosmetic = inventory.getCosmetic(cosmeticId);
         
         if (cosmetic != null && cosmetic.getType() == type) {
+            Cosmetic previous = activeProfile.getEquipped(type);
             activeProfile.equipCosmetic(type, cosmetic);
+            swapAssets(previous, cosmetic);
+            syncLocalPlayer();
+            profileStore.save(activeProfile);
             LOGGER.info("Equipped {} of type {}", cosmeticId, type);
         } else {
             LOGGER.warn("Cannot equip cosmetic: {} (type: {})", cosmeticId, type);
@@ -75,7 +153,10 @@ public class CosmeticManager {
      * Unequip a cosmetic type
      */
     public void unequipCosmetic(CosmeticType type) {
+        swapAssets(activeProfile.getEquipped(type), null);
         activeProfile.unequipCosmetic(type);
+        syncLocalPlayer();
+        profileStore.save(activeProfile);
         LOGGER.info("Unequipped cosmetic of type {}", type);
     }
     
@@ -86,8 +167,15 @@ public class CosmeticManager {
         Cosmetic emote = inventory.getCosmetic(emoteId);
         
         if (emote != null && emote.getType() == CosmeticType.EMOTE) {
+            int slot = localPlayer != null ? players.getSlot(localPlayer) : -1;
+            if (slot < 0) {
+                LOGGER.warn("Cannot play emote {} before the local player is set", emoteId);
+                return;
+            }
+            
             LOGGER.info("Playing emote: {}", emoteId);
-            // Trigger emote animation
+            CosmeticAnimator animator = renderer.getAnimator();
+            animator.post(() -> animator.start(slot, CosmeticType.EMOTE, 1.0f, EMOTE_TICKS));
         }
     }
     
@@ -98,6 +186,7 @@ public class CosmeticManager {
         CosmeticProfile profile = new CosmeticProfile(name);
         profile.copyFrom(activeProfile);
         profiles.put(name, profile);
+        profileStore.save(profile);
         LOGGER.info("Saved cosmetic profile: {}", name);
     }
     
@@ -107,12 +196,120 @@ public class CosmeticManager {
     public void loadProfile(String name) {
         CosmeticProfile profile = profiles.get(name);
         
+        if (profile == null) {
+            profile = profileStore.load(name, inventory);
+            if (profile != null) {
+                profiles.put(name, profile);
+            }
+        }
+        
         if (profile != null) {
+            for (CosmeticType type : CosmeticType.values()) {
+                swapAssets(activeProfile.getEquipped(type), profile.getEquipped(type));
+            }
             activeProfile.copyFrom(profile);
+            syncLocalPlayer();
+            profileStore.save(activeProfile);
             LOGGER.info("Loaded cosmetic profile: {}", name);
         }
     }
     
+    /**
+     * Delete a saved cosmetic profile
+     */
+    public void deleteProfile(String name) {
+        profiles.remove(name);
+        profileStore.delete(name);
+        LOGGER.info("Deleted cosmetic profile: {}", name);
+    }
+    
+    /**
+     * Names of all saved cosmetic profiles
+     */
+    public Set<String> getProfileNames() {
+        Set<String> names = profileStore.getProfileNames();
+        names.remove(ACTIVE_PROFILE);
+        return names;
+    }
+    
+    /**
+     * Move one wearer's asset reference from the previous cosmetic to the next, either may be null
+     */
+    private void swapAssets(Cosmetic previous, Cosmetic next) {
+        if (previous == next) {
+            return;
+        }
+        
+        // Acquire first so an asset shared by both is never evicted in between
+        if (next != null && hasAssets(next)) {
+            assetCache.acquire(next);
+        }
+        if (previous != null && hasAssets(previous)) {
+            assetCache.release(previous.getId());
+        }
+    }
+    
+    /**
+     * The "none" cosmetics of each type have nothing to load
+     */
+    static boolean hasAssets(Cosmetic cosmetic) {
+        return !cosmetic.getId().startsWith("none_");
+    }
+    
+    /**
+     * Set the local player, its equipped cosmetics are rendered like every other player's
+     */
+    public void setLocalPlayer(UUID player) {
+        if (localPlayer != null && !localPlayer.equals(player)) {
+            // The slot is only reused once the render thread has cleared its animations
+            int slot = players.remove(localPlayer);
+            if (slot >= 0) {
+                CosmeticAnimator animator = renderer.getAnimator();
+                animator.post(() -> {
+                    animator.removePlayer(slot);
+                    players.freeSlot(slot);
+                });
+            }
+        }
+        
+        localPlayer = player;
+        syncLocalPlayer();
+    }
+    
+    private void syncLocalPlayer() {
+        if (localPlayer != null) {
+            players.update(localPlayer, activeProfile);
+        }
+    }
+    
+    /**
+     * Resolve the cosmetics of players that came into range in the background,
+     * each player's cosmetics appear once its profile arrives
+     */
+    public void requestPlayerCosmetics(Collection<UUID> playerIds) {
+        for (Map.Entry<UUID, CompletableFuture<CosmeticProfile>> lookup : lookupService.lookupAll(playerIds).entrySet()) {
+            UUID player = lookup.getKey();
+            lookup.getValue().thenAccept(profile -> {
+                if (profile != null) {
+                    players.update(player, profile);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Drop players that have not been rendered recently, call it once per tick on the render thread
+     * @return number of players removed
+     */
+    public int evictOutOfRangePlayers() {
+        // The local player is not rendered in first person but must stay registered
+        if (localPlayer != null) {
+            players.touch(localPlayer);
+        }
+        
+        return players.evictStale(PLAYER_IDLE_MILLIS, renderer.getAnimator()::removePlayer);
+    }
+    
     /**
      * Preview a cosmetic without equipping
      */
@@ -129,6 +326,24 @@ public class CosmeticManager {
         return inventory;
     }
     
+    /**
+     * Get the shared, reference-counted cache of cosmetic models and textures
+     */
+    public CosmeticAssetCache getAssetCache() {
+        return assetCache;
+    }
+    
+    /**
+     * Get the equipped cosmetics of every player in range
+     */
+    public PlayerCosmeticRegistry getPlayers() {
+        return players;
+    }
+    
+    public CosmeticLookupService getLookupService() {
+        return lookupService;
+    }
+    
     public CosmeticRenderer getRenderer() {
         return renderer;
     }
@@ -137,14 +352,36 @@ public class CosmeticManager {
         return store;
     }
     
+    /**
+     * Get the engine holding the coin balance and processing purchases
+     */
+    public PurchaseEngine getPurchases() {
+        return purchases;
+    }
+    
     public CosmeticProfile getActiveProfile() {
         return activeProfile;
     }
     
     public void shutdown() {
         LOGGER.info("Shutting down cosmetics system");
+        if (lookupService != null) {
+            lookupService.shutdown();
+        }
         if (renderer != null) {
             renderer.cleanup();
         }
+        if (players != null) {
+            players.clear();
+        }
+        if (purchaseLog != null) {
+            purchaseLog.close();
+        }
+        if (profileStore != null) {
+            profileStore.shutdown();
+        }
+        if (assetCache != null) {
+            assetCache.shutdown();
+        }
     }
 }
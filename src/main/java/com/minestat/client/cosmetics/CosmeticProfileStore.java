@@ -0,0 +1,325 @@
+package com.minestat.client.cosmetics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persists cosmetic profiles, one small binary file per profile.
+ * Saves are write-behind: save() only records the profile's latest state, and a background
+ * thread writes it after a short delay, so rapid equip changes become one write.
+ * Profiles are read from disk the first time they are loaded by name.
+ * Thread-safe.
+ */
+public class CosmeticProfileStore {
+    
+    private static final Logger LOGGER = LogManager.getLogger(CosmeticProfileStore.class);
+    
+    // File layout: magic, format version, entry count, then per entry a type ordinal and cosmetic id
+    private static final int MAGIC = 0x4D534350;
+    private static final byte FORMAT_VERSION = 1;
+    private static final String EXTENSION = ".profile";
+    
+    private static final CosmeticType[] TYPES = CosmeticType.values();
+    
+    private final Path directory;
+    private final long writeDelayMillis;
+    private final ScheduledExecutorService executor;
+    
+    // Latest unwritten state per profile name, an empty optional marks a deletion
+    private final Map<String, Optional<Map<CosmeticType, String>>> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private boolean flushScheduled = false;
+    
+    // Statistics
+    private long saves = 0;
+    private long writes = 0;
+    
+    public CosmeticProfileStore(Path directory, long writeDelayMillis) {
+        this.directory = directory;
+        this.writeDelayMillis = writeDelayMillis;
+        
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Minestat-ProfileWriter-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+    
+    /**
+     * Record a profile's current cosmetics, written in the background.
+     * Never touches the disk, safe to call on every equip change.
+     */
+    public void save(CosmeticProfile profile) {
+        Map<CosmeticType, String> ids = new EnumMap<>(CosmeticType.class);
+        for (Map.Entry<CosmeticType, Cosmetic> entry : profile.getAllEquipped().entrySet()) {
+            ids.put(entry.getKey(), entry.getValue().getId());
+        }
+        
+        pending.put(profile.getName(), Optional.of(ids));
+        recordSave();
+    }
+    
+    /**
+     * Delete a profile, in the background like save()
+     */
+    public void delete(String name) {
+        pending.put(name, Optional.empty());
+        recordSave();
+    }
+    
+    private void recordSave() {
+        synchronized (flushLock) {
+            saves++;
+        }
+        scheduleFlush();
+    }
+    
+    private void scheduleFlush() {
+        synchronized (flushLock) {
+            if (flushScheduled) {
+                return;
+            }
+            
+            try {
+                executor.schedule(this::flush, writeDelayMillis, TimeUnit.MILLISECONDS);
+                flushScheduled = true;
+            } catch (RejectedExecutionException e) {
+                // Shut down, the final flush already ran or is running
+                LOGGER.warn("Profile store stopped, change not scheduled for writing");
+            }
+        }
+    }
+    
+    /**
+     * Write every pending change now, called by the writer thread and on shutdown
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushScheduled = false;
+        }
+        
+        for (String name : new ArrayList<>(pending.keySet())) {
+            Optional<Map<CosmeticType, String>> state = pending.get(name);
+            if (state == null) {
+                continue;
+            }
+            
+            try {
+                if (state.isPresent()) {
+                    write(name, state.get());
+                } else {
+                    Files.deleteIfExists(fileFor(name));
+                }
+                // Keep it pending if it changed again while being written
+                pending.remove(name, state);
+                synchronized (flushLock) {
+                    writes++;
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to write cosmetic profile {}, will retry", name, e);
+                scheduleFlush();
+            }
+        }
+    }
+    
+    private void write(String name, Map<CosmeticType, String> ids) throws IOException {
+        Files.createDirectories(directory);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(ids.size());
+        for (Map.Entry<CosmeticType, String> entry : ids.entrySet()) {
+            out.writeByte(entry.getKey().ordinal());
+            out.writeUTF(entry.getValue());
+        }
+        out.flush();
+        
+        // Write aside and move into place so a crash never leaves a half-written profile
+        Path file = fileFor(name);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Load a profile by name, including changes not written yet
+     * @return the profile, or null if it does not exist or cannot be read
+     */
+    public CosmeticProfile load(String name, CosmeticInventory inventory) {
+        Optional<Map<CosmeticType, String>> state = pending.get(name);
+        Map<CosmeticType, String> ids;
+        
+        if (state != null) {
+            ids = state.orElse(null);
+        } else {
+            ids = read(name);
+        }
+        
+        if (ids == null) {
+            return null;
+        }
+        
+        CosmeticProfile profile = new CosmeticProfile(name);
+        for (Map.Entry<CosmeticType, String> entry : ids.entrySet()) {
+            Cosmetic cosmetic = inventory.getCosmetic(entry.getValue());
+            
+            // Skip cosmetics removed from the catalog or no longer owned
+            if (cosmetic != null && cosmetic.getType() == entry.getKey() && inventory.ownsCosmetic(cosmetic.getId())) {
+                profile.equipCosmetic(entry.getKey(), cosmetic);
+            }
+        }
+        return profile;
+    }
+    
+    private Map<CosmeticType, String> read(String name) {
+        Path file = fileFor(name);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+                LOGGER.warn("Ignoring cosmetic profile {} in an unknown format", name);
+                return null;
+            }
+            
+            Map<CosmeticType, String> ids = new EnumMap<>(CosmeticType.class);
+            int count = in.readUnsignedByte();
+            for (int i = 0; i < count; i++) {
+                int type = in.readUnsignedByte();
+                String id = in.readUTF();
+                if (type < TYPES.length) {
+                    ids.put(TYPES[type], id);
+                }
+            }
+            return ids;
+        } catch (IOException e) {
+            LOGGER.error("Failed to read cosmetic profile {}", name, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Names of all saved profiles, including ones not written yet
+     */
+    public Set<String> getProfileNames() {
+        Set<String> names = new TreeSet<>();
+        
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    String name = decodeName(fileName.substring(0, fileName.length() - EXTENSION.length()));
+                    if (name != null) {
+                        names.add(name);
+                    } else {
+                        LOGGER.warn("Ignoring stray file {} in the profile directory", fileName);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to list cosmetic profiles", e);
+            }
+        }
+        
+        for (Map.Entry<String, Optional<Map<CosmeticType, String>>> entry : pending.entrySet()) {
+            if (entry.getValue().isPresent()) {
+                names.add(entry.getKey());
+            } else {
+                names.remove(entry.getKey());
+            }
+        }
+        return names;
+    }
+    
+    private Path fileFor(String name) {
+        return directory.resolve(encodeName(name) + EXTENSION);
+    }
+    
+    // Profile names become file names: letters, digits, '-' and '_' are kept, other bytes are %XX escaped
+    private static String encodeName(String name) {
+        StringBuilder encoded = new StringBuilder(name.length());
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return encoded.toString();
+    }
+    
+    /**
+     * @return the profile name, or null if the file name is not one encodeName() produces
+     */
+    private static String decodeName(String encoded) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(encoded.length());
+        for (int i = 0; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if (c == '%') {
+                int high = i + 2 < encoded.length() ? Character.digit(encoded.charAt(i + 1), 16) : -1;
+                int low = high >= 0 ? Character.digit(encoded.charAt(i + 2), 16) : -1;
+                if (low < 0) {
+                    return null;
+                }
+                bytes.write(high << 4 | low);
+                i += 2;
+            } else {
+                bytes.write(c);
+            }
+        }
+        
+        String name = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        // Anything that does not round-trip could not be loaded under the decoded name
+        return encodeName(name).equals(encoded) ? name : null;
+    }
+    
+    /**
+     * Write pending changes and stop the writer thread
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            // Let a running flush finish so it does not race the final one
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        
+        LOGGER.info("Cosmetic profile store stopped ({} saves in {} writes)", getSaves(), getWrites());
+    }
+    
+    /**
+     * Profile changes recorded
+     */
+    public long getSaves() {
+        synchronized (flushLock) {
+            return saves;
+        }
+    }
+    
+    /**
+     * Files written or deleted, fewer than saves when changes were coalesced
+     */
+    public long getWrites() {
+        synchronized (flushLock) {
+            return writes;
+        }
+    }
+    
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
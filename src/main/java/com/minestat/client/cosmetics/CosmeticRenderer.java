@@ -3,6 +3,8 @@ package com.minestat.client.cosmetics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.UUID;
+
 /**
  * Renders cosmetics using OpenGL
  * Handles 3D rendering and animations
@@ -11,79 +13,183 @@ public class CosmeticRenderer {
     
     private static final Logger LOGGER = LogManager.getLogger(CosmeticRenderer.class);
     
+    // Cosmetic types worn on the player model, emotes animate the player itself
+    private static final CosmeticType[] WORN_TYPES = {
+        CosmeticType.CAPE, CosmeticType.WINGS, CosmeticType.HAT, CosmeticType.PARTICLE
+    };
+    
+    // Loop speed of animated cosmetics in cycles per second
+    private static final float ANIMATION_SPEED = 1.0f;
+    
     private boolean initialized = false;
+    private final CosmeticAssetCache assets;
+    private final PlayerCosmeticRegistry players;
+    private final CosmeticAnimator animator = new CosmeticAnimator();
+    private final CosmeticBatcher batcher = new CosmeticBatcher();
+    private final CosmeticBatcher.GroupRenderer groupRenderer = this::renderGroup;
     
-    public CosmeticRenderer() {
+    private double cameraX;
+    private double cameraY;
+    private double cameraZ;
+    
+    public CosmeticRenderer(CosmeticAssetCache assets, PlayerCosmeticRegistry players) {
+        this.assets = assets;
+        this.players = players;
         LOGGER.info("Initializing cosmetic renderer");
         // In a real implementation, this would initialize OpenGL resources
         initialized = true;
     }
     
     /**
-     * Render a cosmetic on a player
+     * Queue a cosmetic on a player for this frame, it is drawn by flushFrame().
+     * Cosmetics whose assets are still loading are skipped instead of waiting.
      */
     public void renderCosmetic(Cosmetic cosmetic, float x, float y, float z, float yaw, float pitch) {
-        if (!initialized) {
+        renderCosmetic(cosmetic, x, y, z, yaw, pitch, 0.0f);
+    }
+    
+    private void renderCosmetic(Cosmetic cosmetic, float x, float y, float z, float yaw, float pitch, float phase) {
+        if (!initialized || assets.getIfLoaded(cosmetic.getId()) == null) {
             return;
         }
         
+        batcher.add(cosmetic, x, y, z, yaw, pitch, phase);
+    }
+    
+    /**
+     * Queue every cosmetic a player has equipped for this frame, with interpolated animation phases
+     * @param partialTick fraction of the current tick that has passed, 0 to 1
+     */
+    public void renderPlayer(UUID player, float x, float y, float z, float yaw, float pitch, float partialTick) {
+        int slot = players.touch(player);
+        if (!initialized || slot < 0) {
+            return;
+        }
+        
+        animator.markRendered(slot, x, y, z);
+        
+        for (CosmeticType type : WORN_TYPES) {
+            Cosmetic cosmetic = players.getEquipped(player, type);
+            
+            if (cosmetic == null) {
+                animator.stop(slot, type);
+                continue;
+            }
+            
+            float phase = 0.0f;
+            if (cosmetic.isAnimated()) {
+                if (!animator.isPlaying(slot, type)) {
+                    animator.start(slot, type, ANIMATION_SPEED, 0);
+                }
+                phase = animator.getPhase(slot, type, partialTick);
+            } else {
+                animator.stop(slot, type);
+            }
+            
+            renderCosmetic(cosmetic, x, y, z, yaw, pitch, phase);
+        }
+    }
+    
+    /**
+     * Draw all cosmetics queued this frame, one instanced submission per type and texture
+     * @return number of submissions
+     */
+    public int flushFrame() {
+        if (!initialized) {
+            return 0;
+        }
+        
+        return batcher.flush(groupRenderer);
+    }
+    
+    private void renderGroup(CosmeticType type, String texture, float[] instances, int count) {
         // In a real implementation, this would:
-        // 1. Bind the appropriate texture
-        // 2. Set up model matrix
+        // 1. Bind the texture once for the group
+        // 2. Upload the instance transforms
         // 3. Apply animations if needed
-        // 4. Render the 3D model
+        // 4. Draw the model once, instanced count times
         
-        switch (cosmetic.getType()) {
+        switch (type) {
             case CAPE:
-                renderCape(cosmetic, x, y, z, yaw, pitch);
+                renderCapes(texture, instances, count);
                 break;
             case WINGS:
-                renderWings(cosmetic, x, y, z, yaw, pitch);
+                renderWings(texture, instances, count);
                 break;
             case HAT:
-                renderHat(cosmetic, x, y, z, yaw, pitch);
+                renderHats(texture, instances, count);
                 break;
             case PARTICLE:
-                renderParticles(cosmetic, x, y, z);
+                renderParticles(texture, instances, count);
                 break;
             default:
                 break;
         }
     }
     
-    private void renderCape(Cosmetic cape, float x, float y, float z, float yaw, float pitch) {
+    private void renderCapes(String texture, float[] instances, int count) {
         // Cape rendering logic with physics simulation
-        LOGGER.debug("Rendering cape: {}", cape.getId());
+        LOGGER.debug("Rendering {} capes: {}", count, texture);
     }
     
-    private void renderWings(Cosmetic wings, float x, float y, float z, float yaw, float pitch) {
+    private void renderWings(String texture, float[] instances, int count) {
         // Wings rendering with flapping animation
-        LOGGER.debug("Rendering wings: {}", wings.getId());
+        LOGGER.debug("Rendering {} wings: {}", count, texture);
     }
     
-    private void renderHat(Cosmetic hat, float x, float y, float z, float yaw, float pitch) {
+    private void renderHats(String texture, float[] instances, int count) {
         // Hat rendering attached to player head
-        LOGGER.debug("Rendering hat: {}", hat.getId());
+        LOGGER.debug("Rendering {} hats: {}", count, texture);
     }
     
-    private void renderParticles(Cosmetic particle, float x, float y, float z) {
+    private void renderParticles(String texture, float[] instances, int count) {
         // Particle effect rendering
-        LOGGER.debug("Rendering particles: {}", particle.getId());
+        LOGGER.debug("Rendering {} particle effects: {}", count, texture);
+    }
+    
+    /**
+     * Get the batcher, including submission counts before and after batching
+     */
+    public CosmeticBatcher getBatcher() {
+        return batcher;
+    }
+    
+    /**
+     * Set the camera position, far players animate at reduced rates
+     */
+    public void setCamera(double x, double y, double z) {
+        cameraX = x;
+        cameraY = y;
+        cameraZ = z;
     }
     
     /**
-     * Update animations
+     * Update animations, advancing them by one pass per elapsed game tick
      */
     public void updateAnimations(float deltaTime) {
-        // Update any ongoing animations
+        if (!initialized) {
+            return;
+        }
+        
+        animator.update(deltaTime, cameraX, cameraY, cameraZ);
+    }
+    
+    /**
+     * Get the animator holding the animation state of every player's cosmetics
+     */
+    public CosmeticAnimator getAnimator() {
+        return animator;
     }
     
     /**
      * Cleanup OpenGL resources
      */
     public void cleanup() {
-        LOGGER.info("Cleaning up cosmetic renderer");
+        LOGGER.info("Cleaning up cosmetic renderer ({} cosmetics in {} submissions)",
+                    batcher.getTotalInstances(), batcher.getTotalSubmissions());
         initialized = false;
+        batcher.clear();
+        animator.clear();
         // Release OpenGL resources
     }
 }
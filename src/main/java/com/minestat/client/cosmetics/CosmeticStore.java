@@ -14,17 +14,22 @@ public class CosmeticStore {
     
     private final List<Cosmetic> featuredCosmetics;
     private final Map<String, Integer> prices;
+    private final PurchaseEngine purchases;
     
-    public CosmeticStore() {
+    public CosmeticStore(CosmeticCatalog catalog, PurchaseEngine purchases) {
         this.featuredCosmetics = new ArrayList<>();
         this.prices = new HashMap<>();
+        this.purchases = purchases;
         
-        loadFeaturedCosmetics();
+        loadFeaturedCosmetics(catalog);
     }
     
-    private void loadFeaturedCosmetics() {
-        // Load featured cosmetics from server or config
-        LOGGER.info("Loading featured cosmetics");
+    private void loadFeaturedCosmetics(CosmeticCatalog catalog) {
+        featuredCosmetics.addAll(catalog.getFeatured());
+        for (Cosmetic cosmetic : catalog.getCosmetics()) {
+            prices.put(cosmetic.getId(), cosmetic.getPrice());
+        }
+        LOGGER.info("Loaded {} featured cosmetics", featuredCosmetics.size());
     }
     
     /**
@@ -42,17 +47,22 @@ public class CosmeticStore {
     }
     
     /**
-     * Purchase a cosmetic
+     * Purchase a cosmetic with the user's coins
+     * @param purchaseId unique id of this purchase, a retry with the same id is never charged twice
      */
-    public boolean purchase(String cosmeticId, int userBalance) {
-        int price = getPrice(cosmeticId);
+    public PurchaseEngine.PurchaseResult purchase(String purchaseId, String cosmeticId) {
+        PurchaseEngine.PurchaseResult result = purchases.purchase(purchaseId, cosmeticId);
         
-        if (userBalance >= price) {
-            LOGGER.info("Purchased cosmetic: {} for {} coins", cosmeticId, price);
-            return true;
+        if (!result.isSuccess()) {
+            LOGGER.warn("Could not purchase {}: {}", cosmeticId, result.getStatus());
         }
-        
-        LOGGER.warn("Insufficient funds to purchase: {}", cosmeticId);
-        return false;
+        return result;
+    }
+    
+    /**
+     * Coins the user can spend
+     */
+    public long getBalance() {
+        return purchases.getBalance();
     }
 }
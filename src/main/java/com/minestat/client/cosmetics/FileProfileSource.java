@@ -0,0 +1,99 @@
+package com.minestat.client.cosmetics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+/**
+ * Profile source backed by a local JSON file mapping player UUIDs to equipped cosmetic ids by type,
+ * e.g. {"<uuid>": {"CAPE": "red_cape", "HAT": "crown"}}.
+ * Stands in for the cosmetics server in offline play and tests. The file is read again when it changes.
+ */
+public class FileProfileSource implements CosmeticLookupService.ProfileSource {
+    
+    private static final Logger LOGGER = LogManager.getLogger(FileProfileSource.class);
+    
+    private static final Type FILE_TYPE = new TypeToken<Map<String, Map<String, String>>>() {}.getType();
+    
+    private final Path file;
+    private final CosmeticInventory inventory;
+    private final Gson gson = new Gson();
+    
+    private Map<String, Map<String, String>> entries = Collections.emptyMap();
+    private FileTime loadedTime;
+    
+    public FileProfileSource(Path file, CosmeticInventory inventory) {
+        this.file = file;
+        this.inventory = inventory;
+    }
+    
+    @Override
+    public synchronized Map<UUID, CosmeticProfile> fetch(Set<UUID> players) throws IOException {
+        reloadIfChanged();
+        
+        Map<UUID, CosmeticProfile> profiles = new HashMap<>();
+        for (UUID player : players) {
+            Map<String, String> equipped = entries.get(player.toString());
+            if (equipped == null) {
+                continue;
+            }
+            
+            CosmeticProfile profile = toProfile(player, equipped);
+            if (profile != null) {
+                profiles.put(player, profile);
+            }
+        }
+        return profiles;
+    }
+    
+    private CosmeticProfile toProfile(UUID player, Map<String, String> equipped) {
+        CosmeticProfile profile = new CosmeticProfile(player.toString());
+        
+        for (Map.Entry<String, String> entry : equipped.entrySet()) {
+            Cosmetic cosmetic = inventory.getCosmetic(entry.getValue());
+            
+            if (cosmetic == null || !cosmetic.getType().name().equals(entry.getKey())) {
+                LOGGER.warn("Ignoring unknown {} cosmetic {} of player {}", entry.getKey(), entry.getValue(), player);
+                continue;
+            }
+            if (CosmeticManager.hasAssets(cosmetic)) {
+                profile.equipCosmetic(cosmetic.getType(), cosmetic);
+            }
+        }
+        
+        return profile.getAllEquipped().isEmpty() ? null : profile;
+    }
+    
+    private void reloadIfChanged() throws IOException {
+        if (!Files.exists(file)) {
+            entries = Collections.emptyMap();
+            loadedTime = null;
+            return;
+        }
+        
+        FileTime modified = Files.getLastModifiedTime(file);
+        if (modified.equals(loadedTime)) {
+            return;
+        }
+        
+        try (Reader reader = Files.newBufferedReader(file)) {
+            Map<String, Map<String, String>> parsed = gson.fromJson(reader, FILE_TYPE);
+            entries = parsed != null ? parsed : Collections.<String, Map<String, String>>emptyMap();
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid cosmetic profile file " + file, e);
+        }
+        
+        loadedTime = modified;
+        LOGGER.info("Loaded {} cosmetic profiles from {}", entries.size(), file);
+    }
+}
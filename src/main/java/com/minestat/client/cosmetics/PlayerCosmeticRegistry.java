@@ -0,0 +1,326 @@
+package com.minestat.client.cosmetics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Equipped cosmetics of every player in range, keyed by player UUID.
+ * Cosmetics are stored as compact short ids, one per cosmetic type, and each player gets a small
+ * slot number that indexes flat per-player arrays such as the animator's.
+ * Each player holds a reference on the assets of its cosmetics while it is registered.
+ * Updates may come from any thread; render thread reads never take a lock.
+ */
+public class PlayerCosmeticRegistry {
+    
+    private static final Logger LOGGER = LogManager.getLogger(PlayerCosmeticRegistry.class);
+    
+    /**
+     * Compact id of an empty slot
+     */
+    public static final short NONE = 0;
+    
+    private static final int TYPE_COUNT = CosmeticType.values().length;
+    
+    private final CosmeticAssetCache assets;
+    
+    // Compact id to cosmetic, replaced on growth; index 0 is NONE
+    private volatile Cosmetic[] cosmetics = new Cosmetic[16];
+    private final Map<String, Short> compactIds = new ConcurrentHashMap<>();
+    private int cosmeticCount = 1;
+    
+    private final Map<UUID, PlayerEntry> players = new ConcurrentHashMap<>();
+    
+    // Released player slots, reused before new ones are handed out
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount = 0;
+    private int nextSlot = 0;
+    
+    // Slots of removed players whose per-slot state is not cleared yet, see remove()
+    private final BitSet retiredSlots = new BitSet();
+    
+    private long evictions = 0;
+    
+    public PlayerCosmeticRegistry(CosmeticAssetCache assets) {
+        this.assets = assets;
+    }
+    
+    /**
+     * Assign a compact id to a cosmetic, "none" cosmetics all map to NONE
+     * @return the compact id, existing or new
+     */
+    public synchronized short register(Cosmetic cosmetic) {
+        if (!CosmeticManager.hasAssets(cosmetic)) {
+            return NONE;
+        }
+        
+        Short existing = compactIds.get(cosmetic.getId());
+        if (existing != null) {
+            return existing;
+        }
+        
+        if (cosmeticCount > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many cosmetics registered");
+        }
+        
+        Cosmetic[] table = cosmetics;
+        if (cosmeticCount == table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        
+        short id = (short) cosmeticCount++;
+        table[id] = cosmetic;
+        cosmetics = table;
+        compactIds.put(cosmetic.getId(), id);
+        return id;
+    }
+    
+    /**
+     * @return the compact id of a cosmetic, or NONE if it is not registered
+     */
+    public short getCompactId(String cosmeticId) {
+        Short id = compactIds.get(cosmeticId);
+        return id != null ? id : NONE;
+    }
+    
+    /**
+     * @return the cosmetic with a compact id, or null for NONE and unknown ids
+     */
+    public Cosmetic getCosmetic(short compactId) {
+        Cosmetic[] table = cosmetics;
+        return compactId > 0 && compactId < table.length ? table[compactId] : null;
+    }
+    
+    /**
+     * Set a player's cosmetics from a profile, registering the player if needed
+     * @return the player's slot
+     */
+    public int update(UUID player, CosmeticProfile profile) {
+        short[] equipped = new short[TYPE_COUNT];
+        
+        for (Cosmetic cosmetic : profile.getAllEquipped().values()) {
+            equipped[cosmetic.getType().ordinal()] = register(cosmetic);
+        }
+        
+        return update(player, equipped);
+    }
+    
+    /**
+     * Set a player's cosmetics as compact ids indexed by CosmeticType ordinal,
+     * registering the player if needed
+     * @return the player's slot
+     */
+    public synchronized int update(UUID player, short[] equipped) {
+        if (equipped.length != TYPE_COUNT) {
+            throw new IllegalArgumentException("Expected " + TYPE_COUNT + " cosmetic ids, got " + equipped.length);
+        }
+        
+        PlayerEntry entry = players.get(player);
+        short[] previous = null;
+        
+        if (entry == null) {
+            entry = new PlayerEntry(allocateSlot(), System.currentTimeMillis());
+            players.put(player, entry);
+        } else {
+            previous = entry.equipped;
+        }
+        
+        short[] next = equipped.clone();
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            short before = previous != null ? previous[i] : NONE;
+            if (next[i] != before) {
+                swapAssets(before, next[i]);
+            }
+        }
+        
+        // Readers see either the old or the new array, never a mix
+        entry.equipped = next;
+        return entry.slot;
+    }
+    
+    /**
+     * Apply many players' cosmetics at once, e.g. a batch received from the server
+     */
+    public synchronized void updateAll(Map<UUID, short[]> updates) {
+        for (Map.Entry<UUID, short[]> update : updates.entrySet()) {
+            update(update.getKey(), update.getValue());
+        }
+    }
+    
+    /**
+     * Get the cosmetic a player has equipped in a slot, without locking
+     * @return the cosmetic, or null if the player is unknown or has none equipped
+     */
+    public Cosmetic getEquipped(UUID player, CosmeticType type) {
+        PlayerEntry entry = players.get(player);
+        return entry != null ? getCosmetic(entry.equipped[type.ordinal()]) : null;
+    }
+    
+    /**
+     * @return the player's slot, or -1 if the player is not registered
+     */
+    public int getSlot(UUID player) {
+        PlayerEntry entry = players.get(player);
+        return entry != null ? entry.slot : -1;
+    }
+    
+    /**
+     * Mark a player as still in range, call it when the player is rendered
+     * @return the player's slot, or -1 if the player is not registered
+     */
+    public int touch(UUID player) {
+        PlayerEntry entry = players.get(player);
+        
+        if (entry == null) {
+            return -1;
+        }
+        
+        entry.lastSeen = System.currentTimeMillis();
+        return entry.slot;
+    }
+    
+    /**
+     * Remove a player, releasing its assets. The slot is not reused until freeSlot() is called,
+     * so per-slot state can be cleared later, e.g. on the render thread.
+     * @return the player's former slot, or -1 if it was not registered
+     */
+    public synchronized int remove(UUID player) {
+        PlayerEntry entry = players.remove(player);
+        
+        if (entry == null) {
+            return -1;
+        }
+        
+        releaseAssets(entry);
+        retiredSlots.set(entry.slot);
+        return entry.slot;
+    }
+    
+    /**
+     * Make the slot of a removed player available again, once its per-slot state is cleared
+     */
+    public synchronized void freeSlot(int slot) {
+        // Slots dropped by clear() in the meantime are not retired anymore
+        if (slot >= 0 && retiredSlots.get(slot)) {
+            retiredSlots.clear(slot);
+            pushFreeSlot(slot);
+        }
+    }
+    
+    /**
+     * Remove players that were not touched recently, they have left render range.
+     * Slots are reported before they can be reused, so per-slot state can be cleared.
+     * @return number of players removed
+     */
+    public synchronized int evictStale(long maxIdleMillis, IntConsumer evictedSlots) {
+        long cutoff = System.currentTimeMillis() - maxIdleMillis;
+        int evicted = 0;
+        
+        Iterator<PlayerEntry> iterator = players.values().iterator();
+        while (iterator.hasNext()) {
+            PlayerEntry entry = iterator.next();
+            if (entry.lastSeen >= cutoff) {
+                continue;
+            }
+            
+            iterator.remove();
+            evictedSlots.accept(entry.slot);
+            release(entry);
+            evicted++;
+        }
+        
+        if (evicted > 0) {
+            evictions += evicted;
+            LOGGER.debug("Evicted {} players out of range, {} remain", evicted, players.size());
+        }
+        return evicted;
+    }
+    
+    private void release(PlayerEntry entry) {
+        releaseAssets(entry);
+        pushFreeSlot(entry.slot);
+    }
+    
+    private void releaseAssets(PlayerEntry entry) {
+        for (short id : entry.equipped) {
+            swapAssets(id, NONE);
+        }
+    }
+    
+    private void pushFreeSlot(int slot) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+    
+    private int allocateSlot() {
+        return freeSlotCount > 0 ? freeSlots[--freeSlotCount] : nextSlot++;
+    }
+    
+    /**
+     * Move one wearer's asset reference between compact ids, either may be NONE
+     */
+    private void swapAssets(short previous, short next) {
+        Cosmetic acquired = getCosmetic(next);
+        Cosmetic released = getCosmetic(previous);
+        
+        // Acquire first so an asset shared by both is never evicted in between
+        if (acquired != null) {
+            assets.acquire(acquired);
+        }
+        if (released != null) {
+            assets.release(released.getId());
+        }
+    }
+    
+    /**
+     * Remove every player, releasing their assets
+     */
+    public synchronized void clear() {
+        for (PlayerEntry entry : players.values()) {
+            release(entry);
+        }
+        players.clear();
+        retiredSlots.clear();
+        freeSlotCount = 0;
+        nextSlot = 0;
+    }
+    
+    public int size() {
+        return players.size();
+    }
+    
+    /**
+     * Highest slot handed out so far plus one, the size per-slot arrays need
+     */
+    public synchronized int getSlotCapacity() {
+        return nextSlot;
+    }
+    
+    public synchronized int getCosmeticCount() {
+        return cosmeticCount - 1;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    private static class PlayerEntry {
+        final int slot;
+        volatile short[] equipped = new short[TYPE_COUNT];
+        volatile long lastSeen;
+        
+        PlayerEntry(int slot, long lastSeen) {
+            this.slot = slot;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.minestat.client.cosmetics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The one place coins are spent on cosmetics.
+ * The balance is debited atomically, so concurrent purchases can never overspend it.
+ * Purchases carry an id chosen by the caller: repeating a completed purchase returns its
+ * result without charging again. Every transaction is appended to the PurchaseLog before it
+ * takes effect, and the balance and owned cosmetics are restored from the log on start.
+ * Coins only come in through credit(), the balance starts at zero.
+ * Thread-safe. Purchases of different cosmetics never wait for each other, except for the log write.
+ */
+public class PurchaseEngine {
+    
+    private static final Logger LOGGER = LogManager.getLogger(PurchaseEngine.class);
+    
+    public enum Status {
+        COMPLETED,
+        ALREADY_OWNED,
+        INSUFFICIENT_FUNDS,
+        UNKNOWN_COSMETIC,
+        // Another purchase with the same id or of the same cosmetic is still running
+        IN_PROGRESS,
+        // Not charged, the transaction could not be logged
+        FAILED
+    }
+    
+    /**
+     * Outcome of a purchase
+     */
+    public static class PurchaseResult {
+        private final Status status;
+        private final String purchaseId;
+        private final String cosmeticId;
+        private final long balance;
+        
+        PurchaseResult(Status status, String purchaseId, String cosmeticId, long balance) {
+            this.status = status;
+            this.purchaseId = purchaseId;
+            this.cosmeticId = cosmeticId;
+            this.balance = balance;
+        }
+        
+        public boolean isSuccess() {
+            return status == Status.COMPLETED;
+        }
+        
+        public Status getStatus() {
+            return status;
+        }
+        
+        public String getPurchaseId() {
+            return purchaseId;
+        }
+        
+        public String getCosmeticId() {
+            return cosmeticId;
+        }
+        
+        /**
+         * Balance right after the purchase
+         */
+        public long getBalance() {
+            return balance;
+        }
+    }
+    
+    private final CosmeticInventory inventory;
+    private final PurchaseLog log;
+    
+    private final AtomicLong balance = new AtomicLong();
+    
+    // Logged transactions by id, completed purchases keep their result for repeats
+    private final Map<String, PurchaseResult> completed = new ConcurrentHashMap<>();
+    
+    // Purchase ids being processed, and the purchase id holding each cosmetic
+    private final Map<String, String> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, String> claims = new ConcurrentHashMap<>();
+    
+    public PurchaseEngine(CosmeticInventory inventory, PurchaseLog log) {
+        this.inventory = inventory;
+        this.log = log;
+    }
+    
+    /**
+     * Rebuild the balance and owned cosmetics from the log, call once before the first purchase
+     */
+    public void restore() throws SQLException {
+        int count = log.replay((transactionId, kind, cosmeticId, amount) -> {
+            balance.addAndGet(amount);
+            
+            if (PurchaseLog.KIND_PURCHASE.equals(kind)) {
+                inventory.grantCosmetic(cosmeticId);
+            }
+            completed.put(transactionId, new PurchaseResult(Status.COMPLETED, transactionId, cosmeticId, balance.get()));
+        });
+        
+        LOGGER.info("Restored {} transactions, balance {} coins", count, balance.get());
+    }
+    
+    /**
+     * Buy a cosmetic
+     * @param purchaseId unique id of this purchase, reuse it when retrying the same purchase
+     */
+    public PurchaseResult purchase(String purchaseId, String cosmeticId) {
+        PurchaseResult result = completed.get(purchaseId);
+        if (result != null) {
+            return result;
+        }
+        
+        if (inFlight.putIfAbsent(purchaseId, cosmeticId) != null) {
+            return result(Status.IN_PROGRESS, purchaseId, cosmeticId);
+        }
+        
+        try {
+            // It may have completed between the first check and the claim
+            result = completed.get(purchaseId);
+            if (result != null) {
+                return result;
+            }
+            
+            Cosmetic cosmetic = inventory.getCosmetic(cosmeticId);
+            if (cosmetic == null) {
+                return result(Status.UNKNOWN_COSMETIC, purchaseId, cosmeticId);
+            }
+            
+            if (claims.putIfAbsent(cosmeticId, purchaseId) != null) {
+                return result(Status.IN_PROGRESS, purchaseId, cosmeticId);
+            }
+            
+            try {
+                return buy(purchaseId, cosmetic);
+            } finally {
+                claims.remove(cosmeticId, purchaseId);
+            }
+        } finally {
+            inFlight.remove(purchaseId);
+        }
+    }
+    
+    private PurchaseResult buy(String purchaseId, Cosmetic cosmetic) {
+        String cosmeticId = cosmetic.getId();
+        
+        if (inventory.ownsCosmetic(cosmeticId)) {
+            return result(Status.ALREADY_OWNED, purchaseId, cosmeticId);
+        }
+        
+        int price = cosmetic.getPrice();
+        long after = debit(price);
+        if (after < 0) {
+            return result(Status.INSUFFICIENT_FUNDS, purchaseId, cosmeticId);
+        }
+        
+        try {
+            log.append(purchaseId, PurchaseLog.KIND_PURCHASE, cosmeticId, -price);
+        } catch (SQLException e) {
+            balance.addAndGet(price);
+            LOGGER.error("Failed to log purchase {} of {}, not charged", purchaseId, cosmeticId, e);
+            return result(Status.FAILED, purchaseId, cosmeticId);
+        }
+        
+        inventory.grantCosmetic(cosmeticId);
+        
+        PurchaseResult result = new PurchaseResult(Status.COMPLETED, purchaseId, cosmeticId, after);
+        completed.put(purchaseId, result);
+        LOGGER.info("Purchased cosmetic: {} for {} coins", cosmeticId, price);
+        return result;
+    }
+    
+    /**
+     * Add coins, e.g. the starting grant or a reward from the server
+     * @param transactionId unique id of the credit, repeating it adds nothing
+     * @return true if the coins were added now
+     */
+    public boolean credit(String transactionId, long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Credit must be positive: " + amount);
+        }
+        if (completed.containsKey(transactionId) || inFlight.putIfAbsent(transactionId, "") != null) {
+            return false;
+        }
+        
+        try {
+            if (completed.containsKey(transactionId)) {
+                return false;
+            }
+            
+            log.append(transactionId, PurchaseLog.KIND_CREDIT, null, amount);
+            long after = balance.addAndGet(amount);
+            completed.put(transactionId, new PurchaseResult(Status.COMPLETED, transactionId, null, after));
+            return true;
+        } catch (SQLException e) {
+            LOGGER.error("Failed to log credit {} of {} coins", transactionId, amount, e);
+            return false;
+        } finally {
+            inFlight.remove(transactionId);
+        }
+    }
+    
+    /**
+     * Take coins from the balance if it covers the amount
+     * @return the balance after the debit, or -1 if it was too low
+     */
+    private long debit(long amount) {
+        while (true) {
+            long current = balance.get();
+            if (current < amount) {
+                return -1;
+            }
+            if (balance.compareAndSet(current, current - amount)) {
+                return current - amount;
+            }
+        }
+    }
+    
+    private PurchaseResult result(Status status, String purchaseId, String cosmeticId) {
+        return new PurchaseResult(status, purchaseId, cosmeticId, balance.get());
+    }
+    
+    public long getBalance() {
+        return balance.get();
+    }
+}
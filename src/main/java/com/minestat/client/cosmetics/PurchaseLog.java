@@ -0,0 +1,102 @@
+package com.minestat.client.cosmetics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.*;
+
+/**
+ * Append-only log of coin transactions in a SQLite database.
+ * A transaction counts once its row is written, so the balance and owned cosmetics
+ * can always be rebuilt by replaying the log. Rows are never updated or deleted.
+ */
+public class PurchaseLog {
+    
+    private static final Logger LOGGER = LogManager.getLogger(PurchaseLog.class);
+    
+    public static final String KIND_PURCHASE = "PURCHASE";
+    public static final String KIND_CREDIT = "CREDIT";
+    
+    /**
+     * Receives logged transactions in the order they were written
+     */
+    public interface TransactionConsumer {
+        void accept(String transactionId, String kind, String cosmeticId, long amount);
+    }
+    
+    private final Connection connection;
+    private final PreparedStatement insert;
+    
+    public PurchaseLog(String dbFile) throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+        
+        try (Statement stmt = connection.createStatement()) {
+            // Write-ahead logging keeps appends cheap, NORMAL sync is still safe against corruption
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+        }
+        createTables();
+        
+        insert = connection.prepareStatement(
+            "INSERT INTO transactions (transaction_id, kind, cosmetic_id, amount) VALUES (?, ?, ?, ?)");
+    }
+    
+    private void createTables() throws SQLException {
+        String createTransactionsTable =
+            "CREATE TABLE IF NOT EXISTS transactions (" +
+            "seq INTEGER PRIMARY KEY AUTOINCREMENT," +
+            "transaction_id TEXT UNIQUE NOT NULL," +
+            "kind TEXT NOT NULL," +
+            "cosmetic_id TEXT," +
+            "amount INTEGER NOT NULL," +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+            ")";
+        
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(createTransactionsTable);
+        }
+    }
+    
+    /**
+     * Append a transaction
+     * @param amount signed balance change, negative for purchases
+     * @throws SQLException if the row was not written, the transaction did not happen
+     */
+    public synchronized void append(String transactionId, String kind, String cosmeticId, long amount) throws SQLException {
+        insert.setString(1, transactionId);
+        insert.setString(2, kind);
+        insert.setString(3, cosmeticId);
+        insert.setLong(4, amount);
+        insert.executeUpdate();
+    }
+    
+    /**
+     * Read every logged transaction, oldest first
+     * @return number of transactions read
+     */
+    public synchronized int replay(TransactionConsumer consumer) throws SQLException {
+        String query = "SELECT transaction_id, kind, cosmetic_id, amount FROM transactions ORDER BY seq";
+        int count = 0;
+        
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                consumer.accept(rs.getString(1), rs.getString(2), rs.getString(3), rs.getLong(4));
+                count++;
+            }
+        }
+        
+        return count;
+    }
+    
+    public synchronized void close() {
+        try {
+            insert.close();
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Failed to close purchase log", e);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.minestat.client.optimization;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Memory-capped LRU cache of chunk payloads (e.g. built meshes) stored off-heap.
+ * Payloads live in pooled direct buffers, so the cache does not grow the Java heap.
+ * The cap covers every buffer the cache holds, cached or kept for reuse, at its full size class
+ * capacity, so off-heap memory never exceeds it. Evicted buffers are reused by later inserts of the
+ * same size class and only dropped when the mix of sizes shifts.
+ * Thread-safe.
+ */
+public class ChunkCache {
+    
+    private final long maxBytes;
+    // Evicted buffers kept for reuse by later inserts, counted against maxBytes
+    private final MeshBufferPool pool;
+    private final Long2ObjectMap<Entry> entries = new Long2ObjectMap<>();
+    
+    // Doubly linked LRU list, head is the most recently used
+    private Entry head;
+    private Entry tail;
+    
+    private long usedBytes = 0;
+    
+    // Statistics
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    
+    public ChunkCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.pool = new MeshBufferPool(maxBytes);
+    }
+    
+    /**
+     * Copy a chunk payload into the cache, replacing any previous payload.
+     * Least recently used chunks are evicted to stay under the memory cap.
+     * @return false if the payload alone exceeds the cap
+     */
+    public synchronized boolean put(int chunkX, int chunkZ, ByteBuffer data) {
+        int length = data.remaining();
+        long chunk = ChunkPos.pack(chunkX, chunkZ);
+        
+        remove(chunk);
+        
+        int capacity = MeshBufferPool.capacityFor(length);
+        if (capacity > maxBytes) {
+            return false;
+        }
+        
+        ByteBuffer buffer = acquire(length, capacity);
+        
+        buffer.put(data.duplicate());
+        buffer.flip();
+        
+        Entry entry = new Entry(chunk, buffer);
+        entries.put(chunk, entry);
+        linkFirst(entry);
+        usedBytes += buffer.capacity();
+        
+        return true;
+    }
+    
+    /**
+     * Get a buffer for a payload, reusing a recycled one where possible. Recycled buffers of other
+     * size classes are dropped before any cached chunk is, and least recently used chunks are only
+     * evicted while the new buffer still does not fit under the cap.
+     */
+    private ByteBuffer acquire(int length, int capacity) {
+        while (true) {
+            ByteBuffer buffer = pool.poll(length);
+            if (buffer != null) {
+                return buffer;
+            }
+            
+            long free = maxBytes - usedBytes - pool.getPooledBytes();
+            if (capacity <= free) {
+                return pool.acquire(length);
+            }
+            
+            if (pool.getPooledBytes() > 0) {
+                // Nothing recycled in this size class, make room from the other classes
+                pool.trim(Math.max(0, maxBytes - usedBytes - capacity));
+            } else {
+                evict(tail);
+            }
+        }
+    }
+    
+    /**
+     * Get a read-only view of a cached payload. The view is only valid until the
+     * next change to the cache, copy it with copyTo() if it must outlive that.
+     * @return the payload, or null on a miss
+     */
+    public synchronized ByteBuffer get(int chunkX, int chunkZ) {
+        Entry entry = touch(ChunkPos.pack(chunkX, chunkZ));
+        return entry != null ? entry.data.asReadOnlyBuffer() : null;
+    }
+    
+    /**
+     * Copy a cached payload into the destination buffer
+     * @return false on a miss or if the destination is too small
+     */
+    public synchronized boolean copyTo(int chunkX, int chunkZ, ByteBuffer destination) {
+        Entry entry = touch(ChunkPos.pack(chunkX, chunkZ));
+        
+        if (entry == null || destination.remaining() < entry.data.remaining()) {
+            return false;
+        }
+        
+        destination.put(entry.data.duplicate());
+        return true;
+    }
+    
+    public synchronized boolean contains(int chunkX, int chunkZ) {
+        return entries.containsKey(ChunkPos.pack(chunkX, chunkZ));
+    }
+    
+    /**
+     * Drop a chunk, e.g. after a block change made its payload stale
+     */
+    public synchronized boolean invalidate(int chunkX, int chunkZ) {
+        return remove(ChunkPos.pack(chunkX, chunkZ));
+    }
+    
+    public synchronized void clear() {
+        while (tail != null) {
+            Entry entry = tail;
+            unlink(entry);
+            pool.release(entry.data);
+        }
+        entries.clear();
+        usedBytes = 0;
+    }
+    
+    private Entry touch(long chunk) {
+        Entry entry = entries.get(chunk);
+        
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        
+        hits++;
+        if (entry != head) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+        return entry;
+    }
+    
+    private boolean remove(long chunk) {
+        Entry entry = entries.remove(chunk);
+        
+        if (entry == null) {
+            return false;
+        }
+        
+        unlink(entry);
+        usedBytes -= entry.data.capacity();
+        pool.release(entry.data);
+        return true;
+    }
+    
+    private void evict(Entry entry) {
+        remove(entry.chunk);
+        evictions++;
+    }
+    
+    private void linkFirst(Entry entry) {
+        entry.previous = null;
+        entry.next = head;
+        if (head != null) {
+            head.previous = entry;
+        }
+        head = entry;
+        if (tail == null) {
+            tail = entry;
+        }
+    }
+    
+    private void unlink(Entry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            head = entry.next;
+        }
+        
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        } else {
+            tail = entry.previous;
+        }
+        
+        entry.previous = null;
+        entry.next = null;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+    
+    /**
+     * Off-heap bytes held for cached payloads and recycled buffers together, at most getMaxBytes()
+     */
+    public synchronized long getAllocatedBytes() {
+        return usedBytes + pool.getPooledBytes();
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups > 0 ? hits / (double) lookups : 0.0;
+    }
+    
+    private static class Entry {
+        final long chunk;
+        final ByteBuffer data;
+        Entry previous;
+        Entry next;
+        
+        Entry(long chunk, ByteBuffer data) {
+            this.chunk = chunk;
+            this.data = data;
+        }
+    }
+}
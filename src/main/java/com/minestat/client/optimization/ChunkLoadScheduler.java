@@ -0,0 +1,336 @@
+package com.minestat.client.optimization;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Bounded priority queue of pending chunk loads.
+ * Chunks closer to the player and in front of the camera are loaded first.
+ * Not thread-safe, use it from the render thread only.
+ */
+public class ChunkLoadScheduler {
+    
+    // Chunks straight behind the player weigh up to (1 + VIEW_WEIGHT) times their distance
+    private static final float VIEW_WEIGHT = 1.5f;
+    
+    // Yaw change in degrees that triggers re-prioritization without crossing a chunk border
+    private static final float REPRIORITIZE_YAW_DEGREES = 30.0f;
+    
+    private final int capacity;
+    private int maxDistance;
+    
+    // Binary min-heap over parallel arrays, lower priority value loads first
+    private final long[] chunks;
+    private final float[] priorities;
+    private final Long2IntMap slots;
+    private int size = 0;
+    private boolean indexing = true;
+    
+    private int playerChunkX = 0;
+    private int playerChunkZ = 0;
+    private float viewX = 0.0f;
+    private float viewZ = 1.0f;
+    private float lastPrioritizedYaw = 0.0f;
+    
+    // Statistics
+    private long scheduled = 0;
+    private long rejected = 0;
+    private long pruned = 0;
+    private long reprioritizations = 0;
+    
+    public ChunkLoadScheduler(int capacity, int maxDistance) {
+        this.capacity = capacity;
+        this.maxDistance = maxDistance;
+        this.chunks = new long[capacity];
+        this.priorities = new float[capacity];
+        this.slots = new Long2IntMap(capacity, -1);
+    }
+    
+    /**
+     * Queue a chunk for loading
+     * @return false if it is already queued, out of range or the queue is full
+     */
+    public boolean request(int chunkX, int chunkZ) {
+        long chunk = ChunkPos.pack(chunkX, chunkZ);
+        
+        if (slots.containsKey(chunk)) {
+            return false;
+        }
+        
+        if (size == capacity || !inRange(chunkX, chunkZ)) {
+            rejected++;
+            return false;
+        }
+        
+        chunks[size] = chunk;
+        priorities[size] = priorityOf(chunkX, chunkZ);
+        slots.put(chunk, size);
+        siftUp(size++);
+        
+        return true;
+    }
+    
+    /**
+     * Remove a queued chunk
+     */
+    public boolean cancel(int chunkX, int chunkZ) {
+        int slot = slots.get(ChunkPos.pack(chunkX, chunkZ));
+        
+        if (slot < 0) {
+            return false;
+        }
+        
+        removeAt(slot);
+        return true;
+    }
+    
+    /**
+     * Hand the most urgent chunk to the consumer as packed coordinates, see ChunkPos.
+     * Every long is a valid chunk, so emptiness is reported separately instead of by a sentinel.
+     * @return false if the queue is empty
+     */
+    public boolean poll(LongConsumer consumer) {
+        if (size == 0) {
+            return false;
+        }
+        
+        consumer.accept(takeFirst());
+        return true;
+    }
+    
+    /**
+     * Hand up to max chunks to the consumer in priority order
+     * @return number of chunks drained
+     */
+    public int drain(LongConsumer consumer, int max) {
+        int drained = 0;
+        
+        while (drained < max && size > 0) {
+            consumer.accept(takeFirst());
+            drained++;
+        }
+        
+        return drained;
+    }
+    
+    private long takeFirst() {
+        long chunk = chunks[0];
+        removeAt(0);
+        scheduled++;
+        return chunk;
+    }
+    
+    /**
+     * Update the player position (block coordinates) and view yaw in degrees.
+     * Priorities are only recomputed when the player enters another chunk or turns noticeably.
+     * @return true if the queue was re-prioritized
+     */
+    public boolean updatePlayer(double x, double z, float yaw) {
+        if (!needsReprioritize(x, z, yaw)) {
+            return false;
+        }
+        
+        playerChunkX = ChunkPos.toChunk(x);
+        playerChunkZ = ChunkPos.toChunk(z);
+        setView(yaw);
+        reprioritize();
+        return true;
+    }
+    
+    /**
+     * Check if the player entered another chunk or turned enough to re-prioritize
+     */
+    public boolean needsReprioritize(double x, double z, float yaw) {
+        float yawDelta = Math.abs(((yaw - lastPrioritizedYaw) % 360.0f + 540.0f) % 360.0f - 180.0f);
+        
+        return ChunkPos.toChunk(x) != playerChunkX
+            || ChunkPos.toChunk(z) != playerChunkZ
+            || yawDelta >= REPRIORITIZE_YAW_DEGREES;
+    }
+    
+    private void setView(float yaw) {
+        // Minecraft yaw: 0 faces +Z, 90 faces -X
+        double radians = Math.toRadians(yaw);
+        viewX = (float) -Math.sin(radians);
+        viewZ = (float) Math.cos(radians);
+        lastPrioritizedYaw = yaw;
+    }
+    
+    /**
+     * Recompute every priority in place, drop chunks that fell out of range and restore
+     * the heap bottom-up. This is O(n) instead of an O(n log n) re-sort.
+     */
+    public void reprioritize() {
+        int kept = 0;
+        
+        for (int i = 0; i < size; i++) {
+            long chunk = chunks[i];
+            int chunkX = ChunkPos.unpackX(chunk);
+            int chunkZ = ChunkPos.unpackZ(chunk);
+            
+            if (!inRange(chunkX, chunkZ)) {
+                slots.remove(chunk);
+                pruned++;
+                continue;
+            }
+            
+            chunks[kept] = chunk;
+            priorities[kept] = priorityOf(chunkX, chunkZ);
+            kept++;
+        }
+        
+        size = kept;
+        
+        // Heapify without index updates, the slots are rebuilt once afterwards
+        indexing = false;
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        indexing = true;
+        
+        for (int i = 0; i < size; i++) {
+            slots.put(chunks[i], i);
+        }
+        
+        reprioritizations++;
+    }
+    
+    private boolean inRange(int chunkX, int chunkZ) {
+        long dx = chunkX - playerChunkX;
+        long dz = chunkZ - playerChunkZ;
+        return dx * dx + dz * dz <= (long) maxDistance * maxDistance;
+    }
+    
+    private float priorityOf(int chunkX, int chunkZ) {
+        float dx = chunkX - playerChunkX;
+        float dz = chunkZ - playerChunkZ;
+        float distanceSq = dx * dx + dz * dz;
+        
+        if (distanceSq == 0.0f) {
+            return 0.0f;
+        }
+        
+        // cos of the angle between view direction and chunk direction, 1 in front, -1 behind
+        float facing = (dx * viewX + dz * viewZ) / (float) Math.sqrt(distanceSq);
+        return distanceSq * (1.0f + VIEW_WEIGHT * (1.0f - facing) * 0.5f);
+    }
+    
+    private void removeAt(int slot) {
+        slots.remove(chunks[slot]);
+        size--;
+        
+        if (slot == size) {
+            return;
+        }
+        
+        chunks[slot] = chunks[size];
+        priorities[slot] = priorities[size];
+        slots.put(chunks[slot], slot);
+        
+        siftDown(slot);
+        siftUp(slot);
+    }
+    
+    private void siftUp(int slot) {
+        long chunk = chunks[slot];
+        float priority = priorities[slot];
+        
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            move(parent, slot);
+            slot = parent;
+        }
+        
+        place(chunk, priority, slot);
+    }
+    
+    private void siftDown(int slot) {
+        long chunk = chunks[slot];
+        float priority = priorities[slot];
+        int half = size >>> 1;
+        
+        while (slot < half) {
+            int child = (slot << 1) + 1;
+            int right = child + 1;
+            if (right < size && priorities[right] < priorities[child]) {
+                child = right;
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            move(child, slot);
+            slot = child;
+        }
+        
+        place(chunk, priority, slot);
+    }
+    
+    private void move(int from, int to) {
+        chunks[to] = chunks[from];
+        priorities[to] = priorities[from];
+        if (indexing) {
+            slots.put(chunks[to], to);
+        }
+    }
+    
+    private void place(long chunk, float priority, int slot) {
+        chunks[slot] = chunk;
+        priorities[slot] = priority;
+        if (indexing) {
+            slots.put(chunk, slot);
+        }
+    }
+    
+    public void setMaxDistance(int maxDistance) {
+        this.maxDistance = maxDistance;
+        reprioritize();
+    }
+    
+    public void clear() {
+        slots.clear();
+        size = 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public boolean contains(int chunkX, int chunkZ) {
+        return slots.containsKey(ChunkPos.pack(chunkX, chunkZ));
+    }
+    
+    /**
+     * Chunks handed out through poll() or drain()
+     */
+    public long getScheduledCount() {
+        return scheduled;
+    }
+    
+    /**
+     * Requests refused because the queue was full or the chunk was out of range
+     */
+    public long getRejectedCount() {
+        return rejected;
+    }
+    
+    /**
+     * Queued chunks dropped because the player moved away from them
+     */
+    public long getPrunedCount() {
+        return pruned;
+    }
+    
+    public long getReprioritizationCount() {
+        return reprioritizations;
+    }
+}
@@ -0,0 +1,75 @@
+package com.minestat.client.optimization;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A built chunk section mesh waiting to be uploaded.
+ * Vertices are 16 bytes: float x, y, z and an int packing the block id and face.
+ * Call release() once the data is uploaded so the buffer can be reused.
+ */
+public class ChunkMesh {
+    
+    public static final int VERTEX_BYTES = 16;
+    
+    private final int chunkX;
+    private final int sectionY;
+    private final int chunkZ;
+    private final int vertexCount;
+    private final long buildNanos;
+    
+    private ByteBuffer vertices;
+    private final MeshBufferPool pool;
+    
+    ChunkMesh(int chunkX, int sectionY, int chunkZ, ByteBuffer vertices, int vertexCount,
+              long buildNanos, MeshBufferPool pool) {
+        this.chunkX = chunkX;
+        this.sectionY = sectionY;
+        this.chunkZ = chunkZ;
+        this.vertices = vertices;
+        this.vertexCount = vertexCount;
+        this.buildNanos = buildNanos;
+        this.pool = pool;
+    }
+    
+    public int getChunkX() {
+        return chunkX;
+    }
+    
+    public int getSectionY() {
+        return sectionY;
+    }
+    
+    public int getChunkZ() {
+        return chunkZ;
+    }
+    
+    /**
+     * Get the vertex data, positioned at 0 with the limit at the end of the data.
+     * Null for empty meshes.
+     */
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+    
+    public int getVertexCount() {
+        return vertexCount;
+    }
+    
+    public boolean isEmpty() {
+        return vertexCount == 0;
+    }
+    
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+    
+    /**
+     * Return the vertex buffer to the pool
+     */
+    public void release() {
+        if (vertices != null) {
+            pool.release(vertices);
+            vertices = null;
+        }
+    }
+}
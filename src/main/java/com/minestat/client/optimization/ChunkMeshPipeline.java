@@ -0,0 +1,276 @@
+package com.minestat.client.optimization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Builds chunk section meshes on a worker pool.
+ * Finished meshes come back through a lock-free queue the render thread drains within a time budget.
+ */
+public class ChunkMeshPipeline {
+    
+    private static final Logger LOGGER = LogManager.getLogger(ChunkMeshPipeline.class);
+    
+    public static final int SECTION_SIZE = 16;
+    public static final int SECTION_VOLUME = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE;
+    
+    private static final long MAX_POOLED_MESH_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_POOLED_SECTIONS = 256;
+    
+    // Face directions: -X, +X, -Y, +Y, -Z, +Z
+    private static final int[] FACE_DX = {-1, 1, 0, 0, 0, 0};
+    private static final int[] FACE_DY = {0, 0, -1, 1, 0, 0};
+    private static final int[] FACE_DZ = {0, 0, 0, 0, -1, 1};
+    
+    // Corner offsets of each face quad, 4 corners of x, y, z
+    private static final float[][] FACE_CORNERS = {
+        {0, 0, 0,  0, 1, 0,  0, 1, 1,  0, 0, 1},
+        {1, 0, 1,  1, 1, 1,  1, 1, 0,  1, 0, 0},
+        {0, 0, 1,  1, 0, 1,  1, 0, 0,  0, 0, 0},
+        {0, 1, 0,  1, 1, 0,  1, 1, 1,  0, 1, 1},
+        {1, 0, 0,  1, 1, 0,  0, 1, 0,  0, 0, 0},
+        {0, 0, 1,  0, 1, 1,  1, 1, 1,  1, 0, 1}
+    };
+    
+    private final ThreadPoolExecutor workers;
+    private final Queue<ChunkMesh> completed = new ConcurrentLinkedQueue<>();
+    private final Queue<short[]> sectionPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledSections = new AtomicInteger();
+    private final MeshBufferPool bufferPool = new MeshBufferPool(MAX_POOLED_MESH_BYTES);
+    
+    // Per-worker growable scratch space, so building a mesh allocates nothing
+    private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(
+        () -> ByteBuffer.allocate(64 * 1024).order(ByteOrder.nativeOrder()));
+    
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong built = new AtomicLong();
+    private final AtomicLong totalBuildNanos = new AtomicLong();
+    
+    private volatile boolean stopped = false;
+    
+    public ChunkMeshPipeline() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+    
+    public ChunkMeshPipeline(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "Minestat-ChunkMesh-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                // Leave headroom for the render thread
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            });
+        
+        LOGGER.info("Chunk mesh pipeline started with {} workers", threads);
+    }
+    
+    /**
+     * Queue a section for meshing. The block array is copied, so the caller may reuse it.
+     * @param blocks SECTION_VOLUME block ids indexed (y << 8) | (z << 4) | x, 0 is air
+     */
+    public void submit(int chunkX, int sectionY, int chunkZ, short[] blocks) {
+        if (blocks.length != SECTION_VOLUME) {
+            throw new IllegalArgumentException("Section must have " + SECTION_VOLUME + " blocks: " + blocks.length);
+        }
+        
+        short[] copy = sectionPool.poll();
+        if (copy != null) {
+            pooledSections.decrementAndGet();
+        } else {
+            copy = new short[SECTION_VOLUME];
+        }
+        System.arraycopy(blocks, 0, copy, 0, SECTION_VOLUME);
+        
+        short[] section = copy;
+        pending.incrementAndGet();
+        
+        try {
+            workers.execute(() -> build(chunkX, sectionY, chunkZ, section));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            LOGGER.warn("Chunk mesh pipeline is shut down, dropped section {},{},{}", chunkX, sectionY, chunkZ);
+        }
+    }
+    
+    private void build(int chunkX, int sectionY, int chunkZ, short[] blocks) {
+        try {
+            long start = System.nanoTime();
+            
+            ByteBuffer buffer = scratch.get();
+            buffer.clear();
+            
+            int vertexCount = 0;
+            
+            for (int y = 0; y < SECTION_SIZE; y++) {
+                for (int z = 0; z < SECTION_SIZE; z++) {
+                    for (int x = 0; x < SECTION_SIZE; x++) {
+                        short block = blocks[(y << 8) | (z << 4) | x];
+                        if (block == 0) {
+                            continue;
+                        }
+                        
+                        for (int face = 0; face < 6; face++) {
+                            if (!isFaceVisible(blocks, x + FACE_DX[face], y + FACE_DY[face], z + FACE_DZ[face])) {
+                                continue;
+                            }
+                            
+                            buffer = ensureScratch(buffer, 4 * ChunkMesh.VERTEX_BYTES);
+                            emitFace(buffer, x, y, z, block, face);
+                            vertexCount += 4;
+                        }
+                    }
+                }
+            }
+            
+            // Copy into a right-sized pooled buffer, the scratch stays with the worker
+            ByteBuffer vertices = null;
+            if (vertexCount > 0) {
+                buffer.flip();
+                vertices = bufferPool.acquire(buffer.remaining());
+                vertices.put(buffer);
+                vertices.flip();
+            }
+            
+            long buildNanos = System.nanoTime() - start;
+            completed.offer(new ChunkMesh(chunkX, sectionY, chunkZ, vertices, vertexCount, buildNanos, bufferPool));
+            
+            // A build that outlived shutdown() releases what it finished, nobody drains the queue anymore
+            if (stopped) {
+                releaseCompleted();
+            }
+            
+            built.incrementAndGet();
+            totalBuildNanos.addAndGet(buildNanos);
+            
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to build mesh for section {},{},{}", chunkX, sectionY, chunkZ, e);
+            
+        } finally {
+            pending.decrementAndGet();
+            if (pooledSections.incrementAndGet() <= MAX_POOLED_SECTIONS) {
+                sectionPool.offer(blocks);
+            } else {
+                pooledSections.decrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * Faces at the section border are always emitted, neighbours are not known here
+     */
+    private static boolean isFaceVisible(short[] blocks, int x, int y, int z) {
+        if (x < 0 || y < 0 || z < 0 || x >= SECTION_SIZE || y >= SECTION_SIZE || z >= SECTION_SIZE) {
+            return true;
+        }
+        return blocks[(y << 8) | (z << 4) | x] == 0;
+    }
+    
+    private static void emitFace(ByteBuffer buffer, int x, int y, int z, short block, int face) {
+        float[] corners = FACE_CORNERS[face];
+        int packed = (block << 3) | face;
+        
+        for (int i = 0; i < 12; i += 3) {
+            buffer.putFloat(x + corners[i]);
+            buffer.putFloat(y + corners[i + 1]);
+            buffer.putFloat(z + corners[i + 2]);
+            buffer.putInt(packed);
+        }
+    }
+    
+    private ByteBuffer ensureScratch(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        
+        // Grow once per worker, later builds reuse the larger buffer
+        ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2).order(ByteOrder.nativeOrder());
+        buffer.flip();
+        grown.put(buffer);
+        scratch.set(grown);
+        return grown;
+    }
+    
+    /**
+     * Hand finished meshes to the consumer until the queue is empty or the budget is spent.
+     * The consumer must call ChunkMesh.release() after uploading.
+     * @return number of meshes handed over
+     */
+    public int drainCompleted(Consumer<ChunkMesh> consumer, long budgetNanos) {
+        long start = System.nanoTime();
+        int drained = 0;
+        
+        ChunkMesh mesh;
+        while ((mesh = completed.poll()) != null) {
+            consumer.accept(mesh);
+            drained++;
+            
+            if (System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+        }
+        
+        return drained;
+    }
+    
+    /**
+     * Stop the workers and release meshes nobody collected, including ones still being built
+     */
+    public void shutdown() {
+        stopped = true;
+        
+        List<Runnable> dropped = workers.shutdownNow();
+        pending.addAndGet(-dropped.size());
+        
+        releaseCompleted();
+        
+        LOGGER.info("Chunk mesh pipeline stopped ({} meshes built, {} queued sections dropped)",
+                    built.get(), dropped.size());
+    }
+    
+    private void releaseCompleted() {
+        ChunkMesh mesh;
+        while ((mesh = completed.poll()) != null) {
+            mesh.release();
+        }
+    }
+    
+    public int getWorkerCount() {
+        return workers.getCorePoolSize();
+    }
+    
+    /**
+     * Sections queued or being built
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+    
+    public int getCompletedCount() {
+        return completed.size();
+    }
+    
+    public long getBuiltCount() {
+        return built.get();
+    }
+    
+    public double getAverageBuildMillis() {
+        long count = built.get();
+        return count > 0 ? totalBuildNanos.get() / (double) count / 1_000_000.0 : 0.0;
+    }
+    
+    public MeshBufferPool getBufferPool() {
+        return bufferPool;
+    }
+}
@@ -10,21 +10,56 @@ public class ChunkOptimizer {
     
     private static final Logger LOGGER = LogManager.getLogger(ChunkOptimizer.class);
     
+    // Room for a full 32 chunk render distance with margin
+    private static final int LOAD_QUEUE_CAPACITY = 16384;
+    
+    private static final int MAX_PRIORITY = 1_000_000;
+    
     private boolean enabled = false;
+    private int renderDistance;
+    private ChunkLoadScheduler loadScheduler;
+    private ChunkMeshPipeline meshPipeline;
+    private ChunkCache chunkCache;
+    private final ChunkSpiral spiral = new ChunkSpiral();
+    private final int cacheMegabytes;
+    private final FrameTaskScheduler frameScheduler;
+    private boolean reprioritizeQueued = false;
+    
+    private double playerX;
+    private double playerZ;
+    private float playerYaw;
+    
+    /**
+     * @param frameScheduler runs deferred work such as load queue re-prioritization
+     */
+    public ChunkOptimizer(int renderDistance, int cacheMegabytes, FrameTaskScheduler frameScheduler) {
+        this.renderDistance = renderDistance;
+        this.cacheMegabytes = cacheMegabytes;
+        this.frameScheduler = frameScheduler;
+    }
     
     public void enable() {
         enabled = true;
-        LOGGER.info("Chunk optimization enabled");
-        
-        // In real implementation:
-        // - Prioritize chunk loading based on player position
-        // - Implement chunk caching
-        // - Optimize mesh generation
-        // - Use multithreading for chunk updates
+        loadScheduler = new ChunkLoadScheduler(LOAD_QUEUE_CAPACITY, renderDistance + 1);
+        meshPipeline = new ChunkMeshPipeline();
+        chunkCache = new ChunkCache(cacheMegabytes * 1024L * 1024L);
+        LOGGER.info("Chunk optimization enabled (render distance: {} chunks, cache: {} MB)",
+                    renderDistance, cacheMegabytes);
     }
     
     public void disable() {
         enabled = false;
+        if (loadScheduler != null) {
+            loadScheduler.clear();
+        }
+        if (meshPipeline != null) {
+            meshPipeline.shutdown();
+            meshPipeline = null;
+        }
+        if (chunkCache != null) {
+            chunkCache.clear();
+            chunkCache = null;
+        }
         LOGGER.info("Chunk optimization disabled");
     }
     
@@ -37,18 +72,113 @@ public class ChunkOptimizer {
         }
         
         // Calculate distance from player
-        int dx = chunkX - playerChunkX;
-        int dz = chunkZ - playerChunkZ;
-        int distanceSq = dx * dx + dz * dz;
+        long dx = chunkX - playerChunkX;
+        long dz = chunkZ - playerChunkZ;
+        long distanceSq = dx * dx + dz * dz;
+        
+        // Closer chunks have higher priority, never negative
+        return (int) Math.max(0, MAX_PRIORITY - distanceSq);
+    }
+    
+    /**
+     * Queue a chunk for loading in distance and view order
+     */
+    public boolean requestChunkLoad(int chunkX, int chunkZ) {
+        if (!enabled) {
+            return false;
+        }
+        
+        return loadScheduler.request(chunkX, chunkZ);
+    }
+    
+    /**
+     * Queue every chunk within the render distance that is not cached yet, nearest ring first
+     * @return number of chunks queued
+     */
+    public int requestChunksAround(int playerChunkX, int playerChunkZ) {
+        if (!enabled) {
+            return 0;
+        }
+        
+        int queued = 0;
+        spiral.reset(playerChunkX, playerChunkZ, renderDistance);
+        while (spiral.next()) {
+            int chunkX = spiral.getChunkX();
+            int chunkZ = spiral.getChunkZ();
+            if (!chunkCache.contains(chunkX, chunkZ) && loadScheduler.request(chunkX, chunkZ)) {
+                queued++;
+            }
+        }
         
-        // Closer chunks have higher priority
-        return 1000 - distanceSq;
+        return queued;
     }
     
     /**
-     * Check if chunk should be cached
+     * Update the player position (block coordinates) and yaw.
+     * Re-prioritization of the load queue runs as frame-budgeted work.
+     */
+    public void updatePlayerPosition(double x, double z, float yaw) {
+        if (!enabled) {
+            return;
+        }
+        
+        playerX = x;
+        playerZ = z;
+        playerYaw = yaw;
+        
+        if (reprioritizeQueued || !loadScheduler.needsReprioritize(x, z, yaw)) {
+            return;
+        }
+        
+        reprioritizeQueued = true;
+        frameScheduler.submit("chunk-reprioritize", FrameTaskScheduler.PRIORITY_HIGH, 100_000L, () -> {
+            reprioritizeQueued = false;
+            if (enabled) {
+                // Use the latest position, the player may have moved since submitting
+                loadScheduler.updatePlayer(playerX, playerZ, playerYaw);
+            }
+        });
+    }
+    
+    /**
+     * Get the chunk load queue
+     */
+    public ChunkLoadScheduler getLoadScheduler() {
+        return loadScheduler;
+    }
+    
+    /**
+     * Get the worker pool that builds chunk meshes off the main thread
+     */
+    public ChunkMeshPipeline getMeshPipeline() {
+        return meshPipeline;
+    }
+    
+    public void setRenderDistance(int renderDistance) {
+        this.renderDistance = renderDistance;
+        if (loadScheduler != null) {
+            loadScheduler.setMaxDistance(renderDistance + 1);
+        }
+    }
+    
+    /**
+     * Check if chunk should be cached: only chunks within the render distance of the player,
+     * the same square requestChunksAround() loads, anything further would soon be evicted unused
      */
     public boolean shouldCacheChunk(int chunkX, int chunkZ) {
-        return enabled;
+        if (!enabled || chunkCache == null || cacheMegabytes <= 0) {
+            return false;
+        }
+        
+        int playerChunkX = (int) Math.floor(playerX) >> 4;
+        int playerChunkZ = (int) Math.floor(playerZ) >> 4;
+        return Math.max(Math.abs(chunkX - playerChunkX), Math.abs(chunkZ - playerChunkZ)) <= renderDistance;
+    }
+    
+    /**
+     * Get the off-heap cache of chunk payloads
+     */
+    public ChunkCache getChunkCache() {
+        return chunkCache;
     }
 }
@@ -0,0 +1,29 @@
+package com.minestat.client.optimization;
+
+/**
+ * Packs chunk coordinates into a single long so chunk lookups need no key objects
+ */
+public final class ChunkPos {
+    
+    private ChunkPos() {
+    }
+    
+    public static long pack(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+    
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+    
+    public static int unpackZ(long packed) {
+        return (int) packed;
+    }
+    
+    /**
+     * Convert a block coordinate to the chunk containing it
+     */
+    public static int toChunk(double blockCoordinate) {
+        return (int) Math.floor(blockCoordinate) >> 4;
+    }
+}
@@ -0,0 +1,113 @@
+package com.minestat.client.optimization;
+
+/**
+ * Walks chunks ring by ring outwards from a center chunk without allocating.
+ * Reuse one instance and call reset() for every walk.
+ *
+ * <pre>
+ * spiral.reset(playerChunkX, playerChunkZ, radius);
+ * while (spiral.next()) {
+ *     load(spiral.getChunkX(), spiral.getChunkZ());
+ * }
+ * </pre>
+ */
+public class ChunkSpiral {
+    
+    private int centerX;
+    private int centerZ;
+    private int radius;
+    
+    private int ring;
+    private int step;
+    private int chunkX;
+    private int chunkZ;
+    
+    // Set once the walk is over, until the next reset()
+    private boolean finished = true;
+    
+    /**
+     * Start a new walk covering the square of the given radius around the center
+     */
+    public void reset(int centerX, int centerZ, int radius) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+        this.ring = -1;
+        this.step = 0;
+        this.finished = radius < 0;
+    }
+    
+    /**
+     * Advance to the next chunk
+     * @return false once every chunk within the radius was visited, and on every call after that
+     */
+    public boolean next() {
+        if (finished) {
+            return false;
+        }
+        
+        if (ring < 0) {
+            ring = 0;
+            chunkX = centerX;
+            chunkZ = centerZ;
+            return true;
+        }
+        
+        // Ring r has 8r chunks, walked as four sides of 2r chunks each
+        if (ring == 0 || step == 8 * ring) {
+            ring++;
+            step = 0;
+            if (ring > radius) {
+                finished = true;
+                return false;
+            }
+        }
+        
+        int side = step / (2 * ring);
+        int offset = step % (2 * ring);
+        step++;
+        
+        switch (side) {
+            case 0: // north edge, west to east
+                chunkX = centerX - ring + offset;
+                chunkZ = centerZ - ring;
+                break;
+            case 1: // east edge, north to south
+                chunkX = centerX + ring;
+                chunkZ = centerZ - ring + offset;
+                break;
+            case 2: // south edge, east to west
+                chunkX = centerX + ring - offset;
+                chunkZ = centerZ + ring;
+                break;
+            default: // west edge, south to north
+                chunkX = centerX - ring;
+                chunkZ = centerZ + ring - offset;
+                break;
+        }
+        
+        return true;
+    }
+    
+    public int getChunkX() {
+        return chunkX;
+    }
+    
+    public int getChunkZ() {
+        return chunkZ;
+    }
+    
+    /**
+     * Current chunk as packed coordinates, see ChunkPos
+     */
+    public long getChunk() {
+        return ChunkPos.pack(chunkX, chunkZ);
+    }
+    
+    /**
+     * Ring of the current chunk, 0 is the center
+     */
+    public int getRing() {
+        return ring;
+    }
+}
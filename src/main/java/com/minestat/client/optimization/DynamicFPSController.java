@@ -1,31 +1,55 @@
 package com.minestat.client.optimization;
 
 import com.minestat.client.MinestatClient;
+import com.minestat.client.config.ConfigManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Controls dynamic FPS - reduces FPS when window is not focused
+ * Controls dynamic FPS - lowers the frame rate when the window is unfocused,
+ * minimized, idle or running on battery
  */
 public class DynamicFPSController {
     
     private static final Logger LOGGER = LogManager.getLogger(DynamicFPSController.class);
     
-    private static final int BACKGROUND_FPS = 10;
-    private static final int FOREGROUND_FPS = 120;
+    // Time to close the gap to a new target, rising is faster so regaining focus feels instant
+    private static final double RAMP_UP_SECONDS = 0.15;
+    private static final double RAMP_DOWN_SECONDS = 0.75;
+    
+    /**
+     * Frame rate states, from least to most restrictive
+     */
+    public enum FrameRateState {
+        FOCUSED,
+        ON_BATTERY,
+        IDLE,
+        UNFOCUSED,
+        MINIMIZED
+    }
     
     private boolean enabled = false;
-    private int currentTargetFPS = FOREGROUND_FPS;
+    private FrameRateState state = FrameRateState.FOCUSED;
+    private int currentTargetFPS;
+    private double smoothedTargetFPS;
     private int currentFPS = 0;
     
+    private final FramePacer pacer = new FramePacer();
     private long lastFrameTime = System.nanoTime();
-    private long frameTimeNanos;
+    private long lastFrameNanos = 0;
+    private long lastWorkNanos = 0;
     
     public void enable() {
         enabled = true;
+        
+        ConfigManager.ClientConfig config = MinestatClient.getInstance().getConfigManager().getConfig();
+        currentTargetFPS = config.video.maxFps;
+        smoothedTargetFPS = currentTargetFPS;
         updateTargetFPS();
-        LOGGER.info("Dynamic FPS enabled (Background: {} FPS, Foreground: {} FPS)", 
-                    BACKGROUND_FPS, FOREGROUND_FPS);
+        
+        LOGGER.info("Dynamic FPS enabled (Focused: {}, Unfocused: {}, Minimized: {}, Idle: {}, Battery: {} FPS)",
+                    config.video.maxFps, config.performance.unfocusedFps, config.performance.minimizedFps,
+                    config.performance.idleFps, config.performance.batteryFps);
     }
     
     public void disable() {
@@ -33,47 +57,108 @@ public class DynamicFPSController {
         LOGGER.info("Dynamic FPS disabled");
     }
     
+    /**
+     * Mark the end of this frame's own work, before deferred work and the wait for the next frame
+     */
+    public void endFrameWork() {
+        if (enabled) {
+            lastWorkNanos = System.nanoTime() - lastFrameTime;
+        }
+    }
+    
     public void update() {
         if (!enabled) {
             return;
         }
         
-        // Check if window focus changed
-        boolean focused = MinestatClient.getInstance()
-                                       .getOptimizationManager()
-                                       .isWindowFocused();
+        long now = System.nanoTime();
+        
+        // Pick the target for the current window, input and power state
+        WindowStateTracker window = MinestatClient.getInstance()
+                                                  .getOptimizationManager()
+                                                  .getWindowState();
+        ConfigManager.ClientConfig config = MinestatClient.getInstance().getConfigManager().getConfig();
+        
+        FrameRateState newState = evaluateState(window, config.performance, now);
+        if (newState != state) {
+            LOGGER.debug("Frame rate state changed: {} -> {}", state, newState);
+            state = newState;
+        }
+        
+        int stateFPS = getStateTargetFPS(state, config);
         
-        int targetFPS = focused ? FOREGROUND_FPS : BACKGROUND_FPS;
+        // Ease towards the state target instead of jumping
+        double seconds = (now - lastFrameTime) / 1_000_000_000.0;
+        double ramp = stateFPS > smoothedTargetFPS ? RAMP_UP_SECONDS : RAMP_DOWN_SECONDS;
+        smoothedTargetFPS += (stateFPS - smoothedTargetFPS) * Math.min(1.0, seconds / ramp);
         
+        int targetFPS = (int) Math.round(smoothedTargetFPS);
         if (targetFPS != currentTargetFPS) {
             currentTargetFPS = targetFPS;
             updateTargetFPS();
         }
         
-        // Calculate current FPS
-        long currentTime = System.nanoTime();
+        // Wait for the next slot on the frame schedule
+        long currentTime = pacer.waitForNextFrame();
         long elapsed = currentTime - lastFrameTime;
         lastFrameTime = currentTime;
         
+        // Calculate current FPS
         if (elapsed > 0) {
+            lastFrameNanos = elapsed;
             currentFPS = (int) (1_000_000_000L / elapsed);
         }
+    }
+    
+    private static FrameRateState evaluateState(WindowStateTracker window,
+                                                ConfigManager.PerformanceSettings settings, long now) {
+        if (window.isMinimized()) {
+            return FrameRateState.MINIMIZED;
+        }
+        
+        if (!window.isFocused()) {
+            return FrameRateState.UNFOCUSED;
+        }
         
-        // Limit FPS
-        if (frameTimeNanos > 0 && elapsed < frameTimeNanos) {
-            try {
-                long sleepTime = (frameTimeNanos - elapsed) / 1_000_000L;
-                if (sleepTime > 0) {
-                    Thread.sleep(sleepTime);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+        if (settings.idleTimeoutSeconds > 0
+                && window.getIdleNanos(now) > settings.idleTimeoutSeconds * 1_000_000_000L) {
+            return FrameRateState.IDLE;
         }
+        
+        if (window.isOnBattery()) {
+            return FrameRateState.ON_BATTERY;
+        }
+        
+        return FrameRateState.FOCUSED;
+    }
+    
+    private static int getStateTargetFPS(FrameRateState state, ConfigManager.ClientConfig config) {
+        int target;
+        
+        switch (state) {
+            case MINIMIZED:
+                target = config.performance.minimizedFps;
+                break;
+            case UNFOCUSED:
+                target = config.performance.unfocusedFps;
+                break;
+            case IDLE:
+                target = config.performance.idleFps;
+                break;
+            case ON_BATTERY:
+                target = config.performance.batteryFps;
+                break;
+            default:
+                target = config.video.maxFps;
+                break;
+        }
+        
+        // Never exceed the user's frame cap, and never stop rendering completely
+        return Math.max(1, Math.min(target, config.video.maxFps));
     }
     
     private void updateTargetFPS() {
-        frameTimeNanos = 1_000_000_000L / currentTargetFPS;
+        pacer.setTargetFPS(currentTargetFPS);
         LOGGER.debug("Target FPS set to: {}", currentTargetFPS);
     }
     
@@ -84,4 +169,40 @@ public class DynamicFPSController {
     public int getTargetFPS() {
         return currentTargetFPS;
     }
+    
+    /**
+     * Duration of the last frame, including the wait for its slot
+     */
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+    
+    /**
+     * Work time of the last frame, from the end of the previous frame's wait to endFrameWork().
+     * Unlike getLastFrameNanos() it shows how much headroom the frame had.
+     */
+    public long getLastWorkNanos() {
+        return lastWorkNanos;
+    }
+    
+    /**
+     * Frame time the current target FPS allows
+     */
+    public long getTargetFrameNanos() {
+        return currentTargetFPS > 0 ? 1_000_000_000L / currentTargetFPS : 0;
+    }
+    
+    /**
+     * Get the current frame rate state
+     */
+    public FrameRateState getState() {
+        return state;
+    }
+    
+    /**
+     * Get the frame pacer, including its pacing error statistics
+     */
+    public FramePacer getFramePacer() {
+        return pacer;
+    }
 }
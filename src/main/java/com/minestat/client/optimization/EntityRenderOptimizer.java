@@ -10,11 +10,25 @@ public class EntityRenderOptimizer {
     
     private static final Logger LOGGER = LogManager.getLogger(EntityRenderOptimizer.class);
     
+    /**
+     * LOD written by computeVisibility() for entities beyond the render distance
+     */
+    public static final byte LOD_HIDDEN = 4;
+    
     private boolean enabled = false;
+    private final SpatialHashGrid grid = new SpatialHashGrid(1024);
+    private final LODManager lodManager;
     private int renderDistance;
     
+    // Squared LOD 1, 2 and 3 thresholds and the squared render distance
+    private double lod1DistanceSq;
+    private double lod2DistanceSq;
+    private double lod3DistanceSq;
+    private double maxDistanceSq;
+    
     public EntityRenderOptimizer(int renderDistance) {
-        this.renderDistance = renderDistance;
+        this.lodManager = new LODManager(renderDistance);
+        setThresholds(renderDistance);
     }
     
     public void enable() {
@@ -24,6 +38,8 @@ public class EntityRenderOptimizer {
     
     public void disable() {
         enabled = false;
+        grid.clear();
+        lodManager.clear();
         LOGGER.info("Entity render optimization disabled");
     }
     
@@ -41,7 +57,6 @@ public class EntityRenderOptimizer {
         double dz = entityZ - playerZ;
         
         double distanceSq = dx * dx + dy * dy + dz * dz;
-        double maxDistanceSq = renderDistance * renderDistance;
         
         return distanceSq <= maxDistanceSq;
     }
@@ -65,12 +80,142 @@ public class EntityRenderOptimizer {
         }
     }
     
+    /**
+     * Compute visibility and LOD of many entities in one pass over parallel position arrays.
+     * Uses squared distances only, so no sqrt is needed per entity.
+     * @param visible bitset receiving one bit per entity, at least (count + 63) / 64 longs
+     * @param lod receives 0-3 for visible entities and LOD_HIDDEN for the rest
+     * @return number of visible entities
+     */
+    public int computeVisibility(double[] x, double[] y, double[] z, int count,
+                                 double playerX, double playerY, double playerZ,
+                                 long[] visible, byte[] lod) {
+        int words = (count + 63) >>> 6;
+        if (visible.length < words || lod.length < count) {
+            throw new IllegalArgumentException("Output arrays too small for " + count + " entities");
+        }
+        
+        if (!enabled) {
+            for (int i = 0; i < count; i++) {
+                lod[i] = 0;
+            }
+            for (int i = 0; i < words; i++) {
+                visible[i] = -1L;
+            }
+            return count;
+        }
+        
+        double t1 = lod1DistanceSq;
+        double t2 = lod2DistanceSq;
+        double t3 = lod3DistanceSq;
+        double max = maxDistanceSq;
+        
+        // Branch-free: the LOD is the number of thresholds the distance reaches
+        for (int i = 0; i < count; i++) {
+            double dx = x[i] - playerX;
+            double dy = y[i] - playerY;
+            double dz = z[i] - playerZ;
+            double distanceSq = dx * dx + dy * dy + dz * dz;
+            
+            lod[i] = (byte) ((distanceSq >= t1 ? 1 : 0) + (distanceSq >= t2 ? 1 : 0)
+                + (distanceSq >= t3 ? 1 : 0) + (distanceSq > max ? 1 : 0));
+        }
+        
+        // Pack the bitset a word at a time from the LOD bytes
+        int visibleCount = 0;
+        for (int word = 0; word < words; word++) {
+            int start = word << 6;
+            int end = Math.min(start + 64, count);
+            long bits = 0L;
+            
+            for (int i = start; i < end; i++) {
+                bits |= (long) ((lod[i] - LOD_HIDDEN) >>> 31) << (i - start);
+            }
+            
+            visible[word] = bits;
+            visibleCount += Long.bitCount(bits);
+        }
+        
+        return visibleCount;
+    }
+    
+    /**
+     * Same as computeVisibility() above, and moves each entity in the spatial grid so neighbour
+     * queries see this frame's positions. Call removeEntity() when an entity despawns.
+     * @param ids stable entity ids, parallel to the position arrays
+     */
+    public int computeVisibility(int[] ids, double[] x, double[] y, double[] z, int count,
+                                 double playerX, double playerY, double playerZ,
+                                 long[] visible, byte[] lod) {
+        if (enabled) {
+            // Only touches the grid for entities that crossed a cell border
+            for (int i = 0; i < count; i++) {
+                grid.update(ids[i], x[i], y[i], z[i]);
+            }
+        }
+        
+        return computeVisibility(x, y, z, count, playerX, playerY, playerZ, visible, lod);
+    }
+    
+    /**
+     * Forget a despawned entity
+     */
+    public void removeEntity(int id) {
+        grid.remove(id);
+        lodManager.remove(id);
+    }
+    
+    /**
+     * Find entities within a radius, as of the last computeVisibility() with ids
+     * @param out receives entity ids, entities beyond its length are counted but not stored
+     * @return number of entities found
+     */
+    public int getEntitiesNear(double x, double y, double z, double radius, int[] out) {
+        return grid.queryRange(x, y, z, radius, out);
+    }
+    
+    /**
+     * Find the nearest entities within maxRadius, nearest first
+     * @return number of ids stored in out
+     */
+    public int getNearestEntities(double x, double y, double z, double maxRadius, int[] out) {
+        return grid.queryNearest(x, y, z, maxRadius, out);
+    }
+    
     public void setRenderDistance(int distance) {
-        this.renderDistance = distance;
+        setThresholds(distance);
+        lodManager.setRenderDistance(distance);
         LOGGER.info("Entity render distance set to: {} blocks", distance);
     }
     
+    private void setThresholds(int distance) {
+        renderDistance = distance;
+        lod1DistanceSq = square(distance * 0.25);
+        lod2DistanceSq = square(distance * 0.5);
+        lod3DistanceSq = square(distance * 0.75);
+        maxDistanceSq = square(distance);
+    }
+    
+    private static double square(double value) {
+        return value * value;
+    }
+    
     public int getRenderDistance() {
         return renderDistance;
     }
+    
+    /**
+     * Get the LOD manager with hysteresis, per-type budgets and frame time downgrades
+     */
+    public LODManager getLODManager() {
+        return lodManager;
+    }
+    
+    /**
+     * Get the spatial index of entities for neighbour and range queries.
+     * Kept current by computeVisibility() with ids and removeEntity().
+     */
+    public SpatialHashGrid getSpatialGrid() {
+        return grid;
+    }
 }
@@ -10,8 +10,23 @@ public class FastRenderOptimizer {
     
     private static final Logger LOGGER = LogManager.getLogger(FastRenderOptimizer.class);
     
+    // Bounding radius assumed for entities tested by position only, covers mobs up to an iron golem
+    private static final float ENTITY_RADIUS = 2.0f;
+    
+    private final Frustum frustum = new Frustum();
     private boolean enabled = false;
     
+    // Camera position the frustum is relative to
+    private double cameraX;
+    private double cameraY;
+    private double cameraZ;
+    
+    // Statistics of the current and the last finished frame
+    private int tested = 0;
+    private int culled = 0;
+    private int lastFrameTested = 0;
+    private int lastFrameCulled = 0;
+    
     public void enable() {
         enabled = true;
         LOGGER.info("Fast Render enabled");
@@ -20,11 +35,11 @@ public class FastRenderOptimizer {
         // - Batch similar render calls
         // - Reduce state changes
         // - Use VBOs efficiently
-        // - Implement frustum culling
     }
     
     public void disable() {
         enabled = false;
+        frustum.invalidate();
         LOGGER.info("Fast Render disabled");
     }
     
@@ -33,7 +48,21 @@ public class FastRenderOptimizer {
             return;
         }
         
-        // Update render optimizations
+        lastFrameTested = tested;
+        lastFrameCulled = culled;
+        tested = 0;
+        culled = 0;
+    }
+    
+    /**
+     * Set the camera for the coming frame, call once per frame before any culling
+     * @param viewProjection camera-relative view-projection matrix, 16 floats in column-major order
+     */
+    public void setCamera(double x, double y, double z, float[] viewProjection) {
+        cameraX = x;
+        cameraY = y;
+        cameraZ = z;
+        frustum.update(viewProjection);
     }
     
     /**
@@ -44,7 +73,68 @@ public class FastRenderOptimizer {
             return true;
         }
         
-        // Frustum culling logic
-        return true; // Simplified
+        return count(frustum.intersectsSphere(
+            (float) (x - cameraX), (float) (y - cameraY), (float) (z - cameraZ), ENTITY_RADIUS));
+    }
+    
+    /**
+     * Check if a world-space bounding box is in view
+     */
+    public boolean shouldRender(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (!enabled) {
+            return true;
+        }
+        
+        return count(frustum.intersectsAabb(
+            (float) (minX - cameraX), (float) (minY - cameraY), (float) (minZ - cameraZ),
+            (float) (maxX - cameraX), (float) (maxY - cameraY), (float) (maxZ - cameraZ)));
+    }
+    
+    /**
+     * Check if a 16x16x16 chunk section is in view
+     */
+    public boolean shouldRenderSection(int chunkX, int sectionY, int chunkZ) {
+        double minX = chunkX * 16.0;
+        double minY = sectionY * 16.0;
+        double minZ = chunkZ * 16.0;
+        return shouldRender(minX, minY, minZ, minX + 16.0, minY + 16.0, minZ + 16.0);
+    }
+    
+    private boolean count(boolean visible) {
+        tested++;
+        if (!visible) {
+            culled++;
+        }
+        return visible;
+    }
+    
+    /**
+     * Get the frustum for batch culling. Its coordinates are relative to the camera position.
+     */
+    public Frustum getFrustum() {
+        return frustum;
+    }
+    
+    public double getCameraX() {
+        return cameraX;
+    }
+    
+    public double getCameraY() {
+        return cameraY;
+    }
+    
+    public double getCameraZ() {
+        return cameraZ;
+    }
+    
+    /**
+     * Single tests run during the last frame, batch calls on the frustum are not counted
+     */
+    public int getLastFrameTested() {
+        return lastFrameTested;
+    }
+    
+    public int getLastFrameCulled() {
+        return lastFrameCulled;
     }
 }
@@ -0,0 +1,56 @@
+package com.minestat.client.optimization;
+
+/**
+ * Smoothed frame work time measured against the frame time target, shared by the LOD policies.
+ * Feed it the work time before pacing, see DynamicFPSController.getLastWorkNanos(): the total frame
+ * time includes the pacer's wait, so it can only tell "over budget" from "not over budget".
+ * Not thread-safe, use it from the render thread only.
+ */
+public class FrameBudgetTracker {
+    
+    /**
+     * How the smoothed work time compares to the target
+     */
+    public enum Budget {
+        // Frames take longer than the target allows
+        OVER,
+        // Within the target but with too little spare time to add load
+        TIGHT,
+        // Enough spare time to add load back
+        HEADROOM
+    }
+    
+    // Smoothed work time above target * OVER_RATIO is over budget, at most target * HEADROOM_RATIO has headroom
+    private static final double OVER_RATIO = 1.0;
+    private static final double HEADROOM_RATIO = 0.85;
+    
+    private double smoothedNanos = 0.0;
+    
+    /**
+     * Feed one frame's work time
+     * @return the budget state, or null if either time is unknown
+     */
+    public Budget record(long workNanos, long targetNanos) {
+        if (targetNanos <= 0 || workNanos <= 0) {
+            return null;
+        }
+        
+        // Exponential moving average, weight 1/8
+        smoothedNanos = smoothedNanos == 0.0
+            ? workNanos
+            : smoothedNanos + (workNanos - smoothedNanos) / 8.0;
+        
+        if (smoothedNanos > targetNanos * OVER_RATIO) {
+            return Budget.OVER;
+        }
+        return smoothedNanos <= targetNanos * HEADROOM_RATIO ? Budget.HEADROOM : Budget.TIGHT;
+    }
+    
+    public double getSmoothedNanos() {
+        return smoothedNanos;
+    }
+    
+    public void reset() {
+        smoothedNanos = 0.0;
+    }
+}
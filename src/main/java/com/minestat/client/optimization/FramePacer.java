@@ -0,0 +1,194 @@
+package com.minestat.client.optimization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces frames against an absolute deadline schedule.
+ * Waits with a sleep/park/spin hybrid: coarse sleeps for long waits, parks for the
+ * middle stretch and a short busy-spin for the last fraction of a millisecond.
+ * Interrupts during a wait are logged and cleared, the wait then carries on to the deadline.
+ */
+public class FramePacer {
+    
+    private static final Logger LOGGER = LogManager.getLogger(FramePacer.class);
+    
+    private static final long SLEEP_THRESHOLD_NANOS = 4_000_000L;
+    private static final long SPIN_THRESHOLD_NANOS = 150_000L;
+    private static final long MAX_OVERSHOOT_NANOS = 2_000_000L;
+    
+    private long frameNanos;
+    private long lastDeadline;
+    
+    // Learned oversleep of sleep()/parkNanos() on this machine
+    private long sleepOvershootNanos = 1_000_000L;
+    private long parkOvershootNanos = 60_000L;
+    
+    // Pacing error statistics (wake-up time minus deadline)
+    private long pacedFrames;
+    private long lateFrames;
+    private long resyncs;
+    private long totalErrorNanos;
+    private long maxErrorNanos;
+    
+    /**
+     * Set the target frame rate, 0 or less disables pacing
+     */
+    public void setTargetFPS(int fps) {
+        long nanos = fps > 0 ? 1_000_000_000L / fps : 0;
+        
+        // The schedule carries on from the last deadline so rate changes do not cause a hitch
+        frameNanos = nanos;
+    }
+    
+    /**
+     * Block until the start of the next frame on the schedule
+     * @return the time the caller was released, in System.nanoTime() units
+     */
+    public long waitForNextFrame() {
+        long now = System.nanoTime();
+        
+        if (frameNanos <= 0) {
+            return now;
+        }
+        
+        if (lastDeadline == 0) {
+            lastDeadline = now;
+            return now;
+        }
+        
+        long deadline = lastDeadline + frameNanos;
+        
+        // More than a whole frame behind: restart the schedule instead of rushing frames to catch up
+        if (now - deadline > frameNanos) {
+            lastDeadline = now;
+            resyncs++;
+            return now;
+        }
+        
+        // Keep the absolute schedule so small errors never accumulate into drift
+        lastDeadline = deadline;
+        
+        waitUntil(deadline);
+        
+        long woke = System.nanoTime();
+        recordError(woke - deadline);
+        return woke;
+    }
+    
+    private void waitUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        
+        // Coarse sleep while far away from the deadline
+        while (remaining > SLEEP_THRESHOLD_NANOS + sleepOvershootNanos) {
+            long sleepMillis = TimeUnit.NANOSECONDS.toMillis(remaining - sleepOvershootNanos - SPIN_THRESHOLD_NANOS);
+            long before = System.nanoTime();
+            
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                // The frame thread is not stopped by interrupts; keeping the flag set would make
+                // every later sleep throw at once and leave frames unpaced for good
+                LOGGER.warn("Frame thread interrupted while pacing, interrupt cleared");
+                remaining = deadline - System.nanoTime();
+                continue;
+            }
+            
+            sleepOvershootNanos = learnOvershoot(sleepOvershootNanos,
+                                                 System.nanoTime() - before - TimeUnit.MILLISECONDS.toNanos(sleepMillis));
+            remaining = deadline - System.nanoTime();
+        }
+        
+        // Park for the middle stretch
+        while (remaining > SPIN_THRESHOLD_NANOS + parkOvershootNanos) {
+            long parkNanos = remaining - SPIN_THRESHOLD_NANOS - parkOvershootNanos;
+            long before = System.nanoTime();
+            
+            LockSupport.parkNanos(parkNanos);
+            if (Thread.interrupted()) {
+                LOGGER.warn("Frame thread interrupted while pacing, interrupt cleared");
+                remaining = deadline - System.nanoTime();
+                continue;
+            }
+            
+            parkOvershootNanos = learnOvershoot(parkOvershootNanos, System.nanoTime() - before - parkNanos);
+            remaining = deadline - System.nanoTime();
+        }
+        
+        // Busy-spin the final stretch for sub-millisecond precision
+        while (deadline - System.nanoTime() > 0) {
+            // spin
+        }
+    }
+    
+    private static long learnOvershoot(long current, long sample) {
+        long clamped = Math.max(0, Math.min(sample, MAX_OVERSHOOT_NANOS));
+        
+        // Exponential moving average, weight 1/8
+        return current + (clamped - current) / 8;
+    }
+    
+    private void recordError(long errorNanos) {
+        pacedFrames++;
+        totalErrorNanos += Math.abs(errorNanos);
+        
+        if (errorNanos > maxErrorNanos) {
+            maxErrorNanos = errorNanos;
+        }
+        
+        if (errorNanos > SPIN_THRESHOLD_NANOS) {
+            lateFrames++;
+        }
+    }
+    
+    /**
+     * Reset pacing error statistics
+     */
+    public void resetStatistics() {
+        pacedFrames = 0;
+        lateFrames = 0;
+        resyncs = 0;
+        totalErrorNanos = 0;
+        maxErrorNanos = 0;
+    }
+    
+    /**
+     * Get the next frame deadline in System.nanoTime() units, or 0 when not pacing
+     */
+    public long getNextDeadline() {
+        return frameNanos > 0 && lastDeadline != 0 ? lastDeadline + frameNanos : 0;
+    }
+    
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+    
+    public long getPacedFrames() {
+        return pacedFrames;
+    }
+    
+    /**
+     * Frames released later than the spin threshold past their deadline
+     */
+    public long getLateFrames() {
+        return lateFrames;
+    }
+    
+    /**
+     * Times the schedule was restarted because a frame ran over by more than a frame
+     */
+    public long getResyncs() {
+        return resyncs;
+    }
+    
+    public double getAverageErrorMillis() {
+        return pacedFrames > 0 ? totalErrorNanos / (double) pacedFrames / 1_000_000.0 : 0.0;
+    }
+    
+    public double getMaxErrorMillis() {
+        return maxErrorNanos / 1_000_000.0;
+    }
+}
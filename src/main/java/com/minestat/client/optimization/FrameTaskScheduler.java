@@ -0,0 +1,162 @@
+package com.minestat.client.optimization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * Spreads deferrable optimizer work across frames.
+ * Tasks run in priority order only while the frame budget lasts, the rest wait for later frames.
+ * Waiting tasks slowly gain priority so low priority work is never starved.
+ * Only work whose result may land a few frames late belongs here: per-frame results such as
+ * particle visibility and cosmetic animation phases are computed inline for the frame being drawn.
+ */
+public class FrameTaskScheduler {
+    
+    private static final Logger LOGGER = LogManager.getLogger(FrameTaskScheduler.class);
+    
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 10;
+    public static final int PRIORITY_HIGH = 20;
+    
+    // A waiting task gains one priority level every AGING_FRAMES frames
+    private static final long AGING_FRAMES = 30;
+    
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private final Map<String, Long> learnedCosts = new HashMap<>();
+    
+    private long frame = 0;
+    private long sequence = 0;
+    
+    // Statistics
+    private long tasksRun = 0;
+    private long tasksDeferred = 0;
+    private long budgetOverruns = 0;
+    private long lastFrameWorkNanos = 0;
+    
+    /**
+     * Submit a task for a later frame
+     * @param name task kind, used to learn its real cost across submissions
+     * @param priority higher runs first, see PRIORITY_* constants
+     * @param estimatedCostNanos expected run time
+     */
+    public synchronized void submit(String name, int priority, long estimatedCostNanos, Runnable action) {
+        queue.add(new Task(name, priority, Math.max(0, estimatedCostNanos), action, frame, sequence++));
+    }
+    
+    /**
+     * Run queued tasks until the budget is spent. Must be called from the render thread.
+     * At least one task runs per frame so oversized tasks still make progress.
+     * @return number of tasks run
+     */
+    public int runFrame(long budgetNanos) {
+        long start = System.nanoTime();
+        int ran = 0;
+        
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = queue.peek();
+                if (task == null) {
+                    break;
+                }
+                
+                long spent = System.nanoTime() - start;
+                if (ran > 0 && spent + estimatedCost(task) > budgetNanos) {
+                    tasksDeferred += queue.size();
+                    break;
+                }
+                
+                queue.poll();
+            }
+            
+            long taskStart = System.nanoTime();
+            try {
+                task.action.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Frame task '{}' failed", task.name, e);
+            }
+            learnCost(task.name, System.nanoTime() - taskStart);
+            ran++;
+        }
+        
+        synchronized (this) {
+            frame++;
+            tasksRun += ran;
+            lastFrameWorkNanos = System.nanoTime() - start;
+            if (lastFrameWorkNanos > budgetNanos) {
+                budgetOverruns++;
+            }
+        }
+        
+        return ran;
+    }
+    
+    private long estimatedCost(Task task) {
+        Long learned = learnedCosts.get(task.name);
+        return learned != null ? Math.max(task.estimatedCostNanos, learned) : task.estimatedCostNanos;
+    }
+    
+    private synchronized void learnCost(String name, long costNanos) {
+        Long previous = learnedCosts.get(name);
+        
+        // Exponential moving average, weight 1/4
+        learnedCosts.put(name, previous == null ? costNanos : previous + (costNanos - previous) / 4);
+    }
+    
+    /**
+     * Drop all queued tasks
+     */
+    public synchronized void clear() {
+        queue.clear();
+    }
+    
+    public synchronized int getPendingTasks() {
+        return queue.size();
+    }
+    
+    public synchronized long getTasksRun() {
+        return tasksRun;
+    }
+    
+    /**
+     * Total task deferrals, a task waiting several frames is counted once per frame
+     */
+    public synchronized long getTasksDeferred() {
+        return tasksDeferred;
+    }
+    
+    public synchronized long getBudgetOverruns() {
+        return budgetOverruns;
+    }
+    
+    public synchronized long getLastFrameWorkNanos() {
+        return lastFrameWorkNanos;
+    }
+    
+    private static class Task implements Comparable<Task> {
+        final String name;
+        final long estimatedCostNanos;
+        final Runnable action;
+        final long order;
+        final long rank;
+        
+        Task(String name, int priority, long estimatedCostNanos, Runnable action, long submitFrame, long order) {
+            this.name = name;
+            this.estimatedCostNanos = estimatedCostNanos;
+            this.action = action;
+            this.order = order;
+            
+            // priority + age / AGING_FRAMES, scaled to stay integral; the age term grows equally
+            // for every waiting task, so only the submit frame needs to be stored
+            this.rank = priority * AGING_FRAMES - submitFrame;
+        }
+        
+        @Override
+        public int compareTo(Task other) {
+            int byRank = Long.compare(other.rank, rank);
+            return byRank != 0 ? byRank : Long.compare(order, other.order);
+        }
+    }
+}
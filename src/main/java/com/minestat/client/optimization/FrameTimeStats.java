@@ -0,0 +1,155 @@
+package com.minestat.client.optimization;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window of recent frame times with a histogram for percentile queries.
+ * Recording a frame is O(1) and allocation-free; percentile queries scan the fixed histogram.
+ */
+public class FrameTimeStats {
+    
+    private static final int DEFAULT_WINDOW = 2048;
+    
+    // Histogram of 50 us buckets up to 250 ms, slower frames land in the last bucket
+    private static final int BUCKET_MICROS = 50;
+    private static final int BUCKET_COUNT = 5000;
+    
+    private final int[] samples;
+    private final int[] histogram = new int[BUCKET_COUNT];
+    
+    private int head = 0;
+    private int count = 0;
+    
+    // Window sums in microseconds for mean and variance
+    private long sumMicros = 0;
+    private long sumSquaresMicros = 0;
+    
+    public FrameTimeStats() {
+        this(DEFAULT_WINDOW);
+    }
+    
+    public FrameTimeStats(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.samples = new int[windowSize];
+    }
+    
+    /**
+     * Record the duration of one frame
+     */
+    public synchronized void recordFrame(long frameNanos) {
+        int micros = (int) Math.max(0, Math.min(frameNanos / 1_000L, Integer.MAX_VALUE));
+        
+        if (count == samples.length) {
+            int evicted = samples[head];
+            histogram[bucketOf(evicted)]--;
+            sumMicros -= evicted;
+            sumSquaresMicros -= (long) evicted * evicted;
+        } else {
+            count++;
+        }
+        
+        samples[head] = micros;
+        histogram[bucketOf(micros)]++;
+        sumMicros += micros;
+        sumSquaresMicros += (long) micros * micros;
+        
+        head = (head + 1) % samples.length;
+    }
+    
+    private static int bucketOf(int micros) {
+        return Math.min(micros / BUCKET_MICROS, BUCKET_COUNT - 1);
+    }
+    
+    /**
+     * Get a frame time percentile in milliseconds, e.g. 0.99 for p99
+     */
+    public synchronized double getPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0.0;
+        }
+        
+        long rank = (long) Math.ceil(Math.max(0.0, Math.min(percentile, 1.0)) * count);
+        rank = Math.max(rank, 1);
+        
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                // Report the middle of the bucket
+                return (i * BUCKET_MICROS + BUCKET_MICROS / 2.0) / 1_000.0;
+            }
+        }
+        
+        return BUCKET_COUNT * BUCKET_MICROS / 1_000.0;
+    }
+    
+    public double getP50Millis() {
+        return getPercentileMillis(0.50);
+    }
+    
+    public double getP95Millis() {
+        return getPercentileMillis(0.95);
+    }
+    
+    public double getP99Millis() {
+        return getPercentileMillis(0.99);
+    }
+    
+    /**
+     * FPS equivalent of the slowest 1% of frames (the p99 frame time)
+     */
+    public double getOnePercentLowFPS() {
+        return toFPS(getPercentileMillis(0.99));
+    }
+    
+    /**
+     * FPS equivalent of the slowest 0.1% of frames (the p99.9 frame time)
+     */
+    public double getPointOnePercentLowFPS() {
+        return toFPS(getPercentileMillis(0.999));
+    }
+    
+    private static double toFPS(double frameMillis) {
+        return frameMillis > 0 ? 1_000.0 / frameMillis : 0.0;
+    }
+    
+    public synchronized double getAverageMillis() {
+        return count > 0 ? sumMicros / (double) count / 1_000.0 : 0.0;
+    }
+    
+    public double getAverageFPS() {
+        return toFPS(getAverageMillis());
+    }
+    
+    /**
+     * Frame time variance in milliseconds squared
+     */
+    public synchronized double getVarianceMillis() {
+        if (count < 2) {
+            return 0.0;
+        }
+        
+        double mean = sumMicros / (double) count;
+        double variance = sumSquaresMicros / (double) count - mean * mean;
+        return Math.max(0.0, variance) / 1_000_000.0;
+    }
+    
+    public double getStandardDeviationMillis() {
+        return Math.sqrt(getVarianceMillis());
+    }
+    
+    public synchronized int getSampleCount() {
+        return count;
+    }
+    
+    public synchronized void reset() {
+        Arrays.fill(samples, 0);
+        Arrays.fill(histogram, 0);
+        head = 0;
+        count = 0;
+        sumMicros = 0;
+        sumSquaresMicros = 0;
+    }
+}
@@ -0,0 +1,192 @@
+package com.minestat.client.optimization;
+
+/**
+ * View frustum as six planes extracted from a view-projection matrix.
+ * Coordinates are relative to the camera, so floats keep their precision far from the world origin.
+ * Not thread-safe, update and test from the render thread.
+ */
+public class Frustum {
+    
+    public static final int OUTSIDE = 0;
+    public static final int INTERSECTING = 1;
+    public static final int INSIDE = 2;
+    
+    private static final int PLANES = 6;
+    
+    // Plane equations nx * x + ny * y + nz * z + d >= 0 for points inside, normals point inwards
+    private final float[] normalX = new float[PLANES];
+    private final float[] normalY = new float[PLANES];
+    private final float[] normalZ = new float[PLANES];
+    private final float[] distance = new float[PLANES];
+    
+    private boolean valid = false;
+    
+    /**
+     * Extract the planes from a view-projection matrix
+     * @param matrix 16 floats in column-major order, as OpenGL and LWJGL store them
+     */
+    public void update(float[] matrix) {
+        if (matrix.length < 16) {
+            throw new IllegalArgumentException("View-projection matrix needs 16 elements: " + matrix.length);
+        }
+        
+        // Gribb-Hartmann: each plane is the last matrix row plus or minus one of the others
+        for (int plane = 0; plane < PLANES; plane++) {
+            int row = plane >> 1;
+            float sign = (plane & 1) == 0 ? 1.0f : -1.0f;
+            
+            float x = matrix[3] + sign * matrix[row];
+            float y = matrix[7] + sign * matrix[4 + row];
+            float z = matrix[11] + sign * matrix[8 + row];
+            float d = matrix[15] + sign * matrix[12 + row];
+            
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            if (length > 0.0f) {
+                x /= length;
+                y /= length;
+                z /= length;
+                d /= length;
+            }
+            
+            normalX[plane] = x;
+            normalY[plane] = y;
+            normalZ[plane] = z;
+            distance[plane] = d;
+        }
+        
+        valid = true;
+    }
+    
+    /**
+     * Forget the planes, every test passes until the next update
+     */
+    public void invalidate() {
+        valid = false;
+    }
+    
+    public boolean isValid() {
+        return valid;
+    }
+    
+    public boolean containsPoint(float x, float y, float z) {
+        return intersectsSphere(x, y, z, 0.0f);
+    }
+    
+    public boolean intersectsSphere(float x, float y, float z, float radius) {
+        if (!valid) {
+            return true;
+        }
+        
+        for (int plane = 0; plane < PLANES; plane++) {
+            if (normalX[plane] * x + normalY[plane] * y + normalZ[plane] * z + distance[plane] < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Conservative box test, large boxes near frustum corners may pass while outside
+     */
+    public boolean intersectsAabb(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (!valid) {
+            return true;
+        }
+        
+        for (int plane = 0; plane < PLANES; plane++) {
+            float nx = normalX[plane];
+            float ny = normalY[plane];
+            float nz = normalZ[plane];
+            
+            // Corner furthest along the normal, if it is outside the whole box is
+            float px = nx >= 0.0f ? maxX : minX;
+            float py = ny >= 0.0f ? maxY : minY;
+            float pz = nz >= 0.0f ? maxZ : minZ;
+            
+            if (nx * px + ny * py + nz * pz + distance[plane] < 0.0f) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Classify a box so callers can skip testing the children of boxes fully inside
+     * @return OUTSIDE, INTERSECTING or INSIDE
+     */
+    public int classifyAabb(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (!valid) {
+            return INSIDE;
+        }
+        
+        int result = INSIDE;
+        
+        for (int plane = 0; plane < PLANES; plane++) {
+            float nx = normalX[plane];
+            float ny = normalY[plane];
+            float nz = normalZ[plane];
+            float d = distance[plane];
+            
+            if (nx * (nx >= 0.0f ? maxX : minX) + ny * (ny >= 0.0f ? maxY : minY)
+                + nz * (nz >= 0.0f ? maxZ : minZ) + d < 0.0f) {
+                return OUTSIDE;
+            }
+            
+            if (nx * (nx >= 0.0f ? minX : maxX) + ny * (ny >= 0.0f ? minY : maxY)
+                + nz * (nz >= 0.0f ? minZ : maxZ) + d < 0.0f) {
+                result = INTERSECTING;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Test many boxes in one call
+     * @param boxes count boxes of 6 floats each: minX, minY, minZ, maxX, maxY, maxZ
+     * @param visible bitset receiving one bit per box, at least (count + 63) / 64 longs
+     * @return number of visible boxes
+     */
+    public int cullAabbs(float[] boxes, int count, long[] visible) {
+        clearBits(visible, count);
+        int visibleCount = 0;
+        
+        for (int i = 0, offset = 0; i < count; i++, offset += 6) {
+            if (intersectsAabb(boxes[offset], boxes[offset + 1], boxes[offset + 2],
+                               boxes[offset + 3], boxes[offset + 4], boxes[offset + 5])) {
+                visible[i >>> 6] |= 1L << i;
+                visibleCount++;
+            }
+        }
+        
+        return visibleCount;
+    }
+    
+    /**
+     * Test many spheres given as parallel arrays in one call
+     * @param visible bitset receiving one bit per sphere, at least (count + 63) / 64 longs
+     * @return number of visible spheres
+     */
+    public int cullSpheres(float[] x, float[] y, float[] z, float[] radius, int count, long[] visible) {
+        clearBits(visible, count);
+        int visibleCount = 0;
+        
+        for (int i = 0; i < count; i++) {
+            if (intersectsSphere(x[i], y[i], z[i], radius[i])) {
+                visible[i >>> 6] |= 1L << i;
+                visibleCount++;
+            }
+        }
+        
+        return visibleCount;
+    }
+    
+    private static void clearBits(long[] bits, int count) {
+        int words = (count + 63) >>> 6;
+        if (bits.length < words) {
+            throw new IllegalArgumentException("Bitset needs " + words + " words: " + bits.length);
+        }
+        for (int i = 0; i < words; i++) {
+            bits[i] = 0L;
+        }
+    }
+}
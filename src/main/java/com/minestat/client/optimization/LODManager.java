@@ -0,0 +1,250 @@
+package com.minestat.client.optimization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns entity LOD levels with hysteresis, per-type budgets and a global downgrade when frames
+ * miss their time target.
+ * Distance bands are 25/50/75% of the render distance like EntityRenderOptimizer.getLODLevel(), but
+ * an entity must cross a band edge by a margin before it changes level, so it does not flicker.
+ * Not thread-safe, use it from the render thread only.
+ */
+public class LODManager {
+    
+    private static final Logger LOGGER = LogManager.getLogger(LODManager.class);
+    
+    public static final int LOD_LEVELS = 4;
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    
+    // Band edges move by this fraction of their distance depending on the direction of the change
+    private static final double HYSTERESIS = 0.1;
+    
+    // Global downgrade applied on top of the distance LOD when frames run late
+    private static final int MAX_BIAS = 2;
+    
+    private static final int DOWNGRADE_FRAMES = 20;
+    private static final int UPGRADE_FRAMES = 180;
+    
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    
+    // Maximum and current number of entities per type and LOD level
+    private int[][] budgets = new int[0][];
+    private int[][] used = new int[0][];
+    
+    // Distance LOD of each entity in the last frame, the base for hysteresis
+    private final Long2IntMap previousLevels = new Long2IntMap(1024, -1);
+    
+    // Squared band edges: plain, for moving to a finer level, for moving to a coarser level
+    private final double[] edgeSq = new double[LOD_LEVELS - 1];
+    private final double[] finerEdgeSq = new double[LOD_LEVELS - 1];
+    private final double[] coarserEdgeSq = new double[LOD_LEVELS - 1];
+    
+    // Entities sorted nearest first as (distance bits << 32 | index)
+    private long[] order = new long[256];
+    
+    private final FrameBudgetTracker frameBudget = new FrameBudgetTracker();
+    private int missedFrames = 0;
+    private int metFrames = 0;
+    private int bias = 0;
+    
+    // Statistics
+    private long budgetDowngrades = 0;
+    private long biasChanges = 0;
+    
+    public LODManager(int renderDistance) {
+        setRenderDistance(renderDistance);
+    }
+    
+    public void setRenderDistance(int renderDistance) {
+        for (int i = 0; i < LOD_LEVELS - 1; i++) {
+            double edge = renderDistance * (i + 1) / (double) LOD_LEVELS;
+            edgeSq[i] = edge * edge;
+            finerEdgeSq[i] = square(edge * (1.0 - HYSTERESIS));
+            coarserEdgeSq[i] = square(edge * (1.0 + HYSTERESIS));
+        }
+    }
+    
+    /**
+     * Get the id of an entity type, registering it with unlimited budgets on first use
+     */
+    public int getTypeId(String type) {
+        Integer id = typeIds.get(type);
+        if (id != null) {
+            return id;
+        }
+        
+        int newId = typeIds.size();
+        typeIds.put(type, newId);
+        
+        budgets = Arrays.copyOf(budgets, newId + 1);
+        used = Arrays.copyOf(used, newId + 1);
+        budgets[newId] = new int[LOD_LEVELS];
+        used[newId] = new int[LOD_LEVELS];
+        Arrays.fill(budgets[newId], UNLIMITED);
+        
+        return newId;
+    }
+    
+    /**
+     * Limit how many entities of a type render at a LOD level, e.g. at most 8 players at LOD 0.
+     * Entities over budget fall to the next coarser level. The coarsest level is never limited.
+     */
+    public void setBudget(String type, int level, int maxEntities) {
+        if (level < 0 || level >= LOD_LEVELS - 1) {
+            throw new IllegalArgumentException("Budgets apply to LOD 0-" + (LOD_LEVELS - 2) + ": " + level);
+        }
+        
+        budgets[getTypeId(type)][level] = Math.max(0, maxEntities);
+    }
+    
+    /**
+     * Assign LOD levels for one frame. Nearer entities claim budget first.
+     * @param ids stable entity ids, used to remember each entity's level between frames
+     * @param types type ids from getTypeId()
+     * @param distanceSq squared distance of each entity to the camera
+     * @param levels receives the LOD level of each entity
+     */
+    public void assign(int[] ids, int[] types, float[] distanceSq, int count, byte[] levels) {
+        if (order.length < count) {
+            order = new long[Math.max(count, order.length * 2)];
+        }
+        
+        // Non-negative floats sort like their bit patterns, so this sorts without boxing
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) Float.floatToIntBits(Math.max(0.0f, distanceSq[i])) << 32) | i;
+        }
+        Arrays.sort(order, 0, count);
+        
+        for (int[] counts : used) {
+            Arrays.fill(counts, 0);
+        }
+        
+        // Forget entities that left long ago, they restart without hysteresis
+        if (previousLevels.size() > count * 4 + 1024) {
+            previousLevels.clear();
+        }
+        
+        for (int n = 0; n < count; n++) {
+            int i = (int) order[n];
+            int id = ids[i];
+            
+            int level = distanceLevel(distanceSq[i], previousLevels.get(id));
+            previousLevels.put(id, level);
+            
+            level = Math.min(LOD_LEVELS - 1, level + bias);
+            
+            int[] typeBudgets = budgets[types[i]];
+            int[] typeUsed = used[types[i]];
+            while (level < LOD_LEVELS - 1 && typeUsed[level] >= typeBudgets[level]) {
+                level++;
+                budgetDowngrades++;
+            }
+            typeUsed[level]++;
+            
+            levels[i] = (byte) level;
+        }
+    }
+    
+    private int distanceLevel(float distanceSq, int previous) {
+        int level = 0;
+        
+        for (int edge = 0; edge < LOD_LEVELS - 1; edge++) {
+            double threshold;
+            if (previous < 0) {
+                threshold = edgeSq[edge];
+            } else if (previous <= edge) {
+                // Finer than this edge now, only move out once clearly past it
+                threshold = coarserEdgeSq[edge];
+            } else {
+                threshold = finerEdgeSq[edge];
+            }
+            
+            if (distanceSq >= threshold) {
+                level++;
+            }
+        }
+        
+        return level;
+    }
+    
+    /**
+     * Forget a despawned entity
+     */
+    public void remove(int id) {
+        previousLevels.remove(id);
+    }
+    
+    /**
+     * Feed the last frame's work time, see DynamicFPSController.getLastWorkNanos().
+     * Sustained misses of the target raise the global downgrade, a long run of frames
+     * with headroom lowers it again.
+     */
+    public void recordFrame(long workNanos, long targetNanos) {
+        FrameBudgetTracker.Budget budget = frameBudget.record(workNanos, targetNanos);
+        
+        if (budget == FrameBudgetTracker.Budget.OVER) {
+            metFrames = 0;
+            if (++missedFrames >= DOWNGRADE_FRAMES && bias < MAX_BIAS) {
+                setBias(bias + 1, targetNanos);
+            }
+        } else if (budget == FrameBudgetTracker.Budget.HEADROOM) {
+            missedFrames = 0;
+            if (++metFrames >= UPGRADE_FRAMES && bias > 0) {
+                setBias(bias - 1, targetNanos);
+            }
+        }
+    }
+    
+    private void setBias(int newBias, long targetNanos) {
+        LOGGER.debug("Entity LOD bias {} -> {} (frame work {} ms, target {} ms)", bias, newBias,
+                     String.format("%.2f", frameBudget.getSmoothedNanos() / 1_000_000.0),
+                     String.format("%.2f", targetNanos / 1_000_000.0));
+        bias = newBias;
+        missedFrames = 0;
+        metFrames = 0;
+        biasChanges++;
+    }
+    
+    public void clear() {
+        previousLevels.clear();
+        frameBudget.reset();
+        missedFrames = 0;
+        metFrames = 0;
+        bias = 0;
+    }
+    
+    private static double square(double value) {
+        return value * value;
+    }
+    
+    /**
+     * Levels currently added to every entity because frames miss their target
+     */
+    public int getBias() {
+        return bias;
+    }
+    
+    /**
+     * Entities in the last assign() call of a type at a level
+     */
+    public int getUsed(String type, int level) {
+        Integer id = typeIds.get(type);
+        return id != null ? used[id][level] : 0;
+    }
+    
+    /**
+     * Level steps forced by budgets since creation
+     */
+    public long getBudgetDowngrades() {
+        return budgetDowngrades;
+    }
+    
+    public long getBiasChanges() {
+        return biasChanges;
+    }
+}
@@ -0,0 +1,200 @@
+package com.minestat.client.optimization;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys (e.g. packed chunk coordinates, see ChunkPos)
+ * to primitive ints, e.g. array slots. Nothing is boxed.
+ * Not thread-safe.
+ */
+public class Long2IntMap {
+    
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+    private int resizeThreshold;
+    
+    // Key 0 marks free slots, so its value is stored separately
+    private boolean hasZeroKey = false;
+    private int zeroValue;
+    
+    private final int missingValue;
+    
+    /**
+     * @param missingValue returned by get() and remove() for absent keys
+     */
+    public Long2IntMap(int missingValue) {
+        this(DEFAULT_CAPACITY, missingValue);
+    }
+    
+    public Long2IntMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(LongHashing.tableSize(expectedSize, LOAD_FACTOR));
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    public int get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        
+        int slot = LongHashing.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+    
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        
+        int slot = LongHashing.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    /**
+     * @return the previous value, or the missing value
+     */
+    public int put(long key, int value) {
+        if (key == 0) {
+            int previous = hasZeroKey ? zeroValue : missingValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        
+        int slot = LongHashing.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        keys[slot] = key;
+        values[slot] = value;
+        
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+    
+    /**
+     * @return the removed value, or the missing value
+     */
+    public int remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return missingValue;
+            }
+            int previous = zeroValue;
+            hasZeroKey = false;
+            size--;
+            return previous;
+        }
+        
+        int slot = LongHashing.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                int previous = values[slot];
+                size--;
+                shiftKeys(slot);
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+    
+    /**
+     * Backward-shift deletion, keeps probe chains intact without tombstones
+     */
+    private void shiftKeys(int slot) {
+        while (true) {
+            int last = slot;
+            slot = (slot + 1) & mask;
+            
+            long current;
+            while (true) {
+                if ((current = keys[slot]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                
+                int home = LongHashing.mix(current) & mask;
+                // Move the entry back unless its home lies cyclically in (last, slot]
+                if (last <= slot ? last >= home || home > slot : last >= home && home > slot) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            
+            keys[last] = current;
+            values[last] = values[slot];
+        }
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        
+        allocate(capacity);
+        
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = LongHashing.mix(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        size = 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.minestat.client.optimization;
+
+/**
+ * Hashing helpers shared by the primitive long-keyed maps
+ */
+final class LongHashing {
+    
+    private LongHashing() {
+    }
+    
+    /**
+     * Spread all 64 key bits over the low bits used as table index
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+    
+    /**
+     * Smallest power of two table that holds expectedSize entries under the load factor
+     */
+    static int tableSize(int expectedSize, float loadFactor) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 2) / loadFactor);
+        int size = Integer.highestOneBit((int) Math.min(needed, 1 << 30));
+        return size < needed ? size << 1 : size;
+    }
+}
@@ -0,0 +1,134 @@
+package com.minestat.client.optimization;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct byte buffers in power-of-two size classes.
+ * Rebuild storms reuse released buffers instead of allocating new ones.
+ * Thread-safe.
+ */
+public class MeshBufferPool {
+    
+    private static final int MIN_CLASS_BITS = 12; // 4 KB
+    private static final int MAX_CLASS_BITS = 22; // 4 MB
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Queue<ByteBuffer>[] classes = new Queue[MAX_CLASS_BITS - MIN_CLASS_BITS + 1];
+    
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    
+    public MeshBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+    
+    /**
+     * Get a cleared buffer with at least the given capacity, in native byte order
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        ByteBuffer buffer = poll(minCapacity);
+        if (buffer != null) {
+            return buffer;
+        }
+        
+        allocations.incrementAndGet();
+        return ByteBuffer.allocateDirect(capacityFor(minCapacity)).order(ByteOrder.nativeOrder());
+    }
+    
+    /**
+     * Reuse a pooled buffer with at least the given capacity, never allocating
+     * @return a cleared buffer, or null if its size class is empty
+     */
+    public ByteBuffer poll(int minCapacity) {
+        int bits = classBits(minCapacity);
+        if (bits > MAX_CLASS_BITS) {
+            return null;
+        }
+        
+        ByteBuffer buffer = classes[bits - MIN_CLASS_BITS].poll();
+        if (buffer == null) {
+            return null;
+        }
+        
+        pooledBytes.addAndGet(-buffer.capacity());
+        reuses.incrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+    
+    /**
+     * Drop pooled buffers, largest size classes first, until at most the given bytes stay pooled
+     * @return bytes dropped
+     */
+    public long trim(long maxBytes) {
+        long dropped = 0;
+        
+        for (int i = classes.length - 1; i >= 0 && pooledBytes.get() > maxBytes; i--) {
+            ByteBuffer buffer;
+            while (pooledBytes.get() > maxBytes && (buffer = classes[i].poll()) != null) {
+                pooledBytes.addAndGet(-buffer.capacity());
+                dropped += buffer.capacity();
+            }
+        }
+        return dropped;
+    }
+    
+    /**
+     * Capacity acquire() allocates for a request: its size class, or the exact size if too large to pool
+     */
+    public static int capacityFor(int minCapacity) {
+        int bits = classBits(minCapacity);
+        return bits > MAX_CLASS_BITS ? minCapacity : 1 << bits;
+    }
+    
+    /**
+     * Return a buffer to the pool, it must not be used afterwards
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        
+        // Only exact size classes are pooled, anything else is left to the GC
+        if (Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        
+        int bits = Integer.numberOfTrailingZeros(capacity);
+        if (bits < MIN_CLASS_BITS || bits > MAX_CLASS_BITS) {
+            return;
+        }
+        
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        
+        classes[bits - MIN_CLASS_BITS].offer(buffer);
+    }
+    
+    private static int classBits(int capacity) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, capacity) - 1);
+        return Math.max(bits, MIN_CLASS_BITS);
+    }
+    
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+    
+    public long getAllocationCount() {
+        return allocations.get();
+    }
+    
+    public long getReuseCount() {
+        return reuses.get();
+    }
+}
@@ -13,12 +13,25 @@ public class OptimizationManager {
     
     private static final Logger LOGGER = LogManager.getLogger(OptimizationManager.class);
     
+    // Budget for deferred optimizer work when no frame deadline is known
+    private static final long DEFAULT_WORK_BUDGET_NANOS = 2_000_000L;
+    private static final long MAX_WORK_BUDGET_NANOS = 8_000_000L;
+    private static final long PACING_MARGIN_NANOS = 500_000L;
+    
     private DynamicFPSController dynamicFPS;
     private FastRenderOptimizer fastRender;
     private ChunkOptimizer chunkOptimizer;
     private EntityRenderOptimizer entityOptimizer;
     private ParticleOptimizer particleOptimizer;
     
+    // Survives re-initialization so window listeners are installed once
+    private final WindowStateTracker windowState = new WindowStateTracker();
+    private final FrameTaskScheduler frameScheduler = new FrameTaskScheduler();
+    
+    // Measured here rather than by the FPS limiter, so it works with any set of optimizers
+    private final FrameTimeStats frameTimeStats = new FrameTimeStats();
+    private long lastFrameTime = 0;
+    
     private ConfigManager.PerformanceSettings settings;
     
     public void initialize() {
@@ -26,6 +39,8 @@ public class OptimizationManager {
         
         settings = MinestatClient.getInstance().getConfigManager().getConfig().performance;
         
+        windowState.install();
+        
         // Initialize optimization modules
         if (settings.dynamicFps) {
             dynamicFPS = new DynamicFPSController();
@@ -38,7 +53,10 @@ public class OptimizationManager {
         }
         
         if (settings.chunkOptimization) {
-            chunkOptimizer = new ChunkOptimizer();
+            chunkOptimizer = new ChunkOptimizer(
+                MinestatClient.getInstance().getConfigManager().getConfig().video.renderDistance,
+                settings.chunkCacheMegabytes,
+                frameScheduler);
             chunkOptimizer.enable();
         }
         
@@ -57,13 +75,70 @@ public class OptimizationManager {
      * Update optimization systems each frame
      */
     public void update() {
+        // The frame's own work ends here, deferred work and pacing below only fill its spare time
         if (dynamicFPS != null) {
-            dynamicFPS.update();
+            dynamicFPS.endFrameWork();
         }
         
         if (fastRender != null) {
             fastRender.update();
         }
+        
+        // Deferred work uses what is left of this frame, then we wait for the next one
+        frameScheduler.runFrame(getFrameWorkBudget());
+        
+        long workNanos = 0;
+        long targetFrameNanos = 0;
+        
+        if (dynamicFPS != null) {
+            dynamicFPS.update();
+            workNanos = dynamicFPS.getLastWorkNanos();
+            targetFrameNanos = dynamicFPS.getTargetFrameNanos();
+            
+            // Crowded scenes drop entity detail while frames miss their target
+            entityOptimizer.getLODManager().recordFrame(workNanos, targetFrameNanos);
+        }
+        
+        if (particleOptimizer != null) {
+            particleOptimizer.update(workNanos, targetFrameNanos);
+        }
+        
+        recordFrameTime();
+    }
+    
+    /**
+     * Record the time since the previous frame, pacing included
+     */
+    private void recordFrameTime() {
+        long now = System.nanoTime();
+        if (lastFrameTime != 0) {
+            frameTimeStats.recordFrame(now - lastFrameTime);
+        }
+        lastFrameTime = now;
+    }
+    
+    /**
+     * Time left for deferred work before the next frame is due
+     */
+    private long getFrameWorkBudget() {
+        if (dynamicFPS == null) {
+            return DEFAULT_WORK_BUDGET_NANOS;
+        }
+        
+        long deadline = dynamicFPS.getFramePacer().getNextDeadline();
+        if (deadline == 0) {
+            return DEFAULT_WORK_BUDGET_NANOS;
+        }
+        
+        long remaining = deadline - System.nanoTime() - PACING_MARGIN_NANOS;
+        return Math.max(0, Math.min(remaining, MAX_WORK_BUDGET_NANOS));
+    }
+    
+    /**
+     * Get the scheduler optimizers submit deferrable per-frame work to
+     */
+    public FrameTaskScheduler getFrameScheduler() {
+        return frameScheduler;
     }
     
     /**
@@ -76,6 +151,34 @@ public class OptimizationManager {
         }
     }
     
+    /**
+     * Get frustum culling, or null if fast render is disabled
+     */
+    public FastRenderOptimizer getFastRender() {
+        return fastRender;
+    }
+    
+    /**
+     * Get chunk optimizer, or null if chunk optimization is disabled
+     */
+    public ChunkOptimizer getChunkOptimizer() {
+        return chunkOptimizer;
+    }
+    
+    /**
+     * Get entity render optimizer
+     */
+    public EntityRenderOptimizer getEntityOptimizer() {
+        return entityOptimizer;
+    }
+    
+    /**
+     * Get particle optimizer, or null if particle optimization is disabled
+     */
+    public ParticleOptimizer getParticleOptimizer() {
+        return particleOptimizer;
+    }
+    
     /**
      * Get current FPS
      */
@@ -86,12 +189,25 @@ public class OptimizationManager {
         return 0;
     }
     
+    /**
+     * Get rolling frame time statistics (percentiles, lows, variance), recorded every frame
+     */
+    public FrameTimeStats getFrameTimeStats() {
+        return frameTimeStats;
+    }
+    
     /**
      * Check if window is focused
      */
     public boolean isWindowFocused() {
-        // In real implementation, this would check actual window focus
-        return true;
+        return windowState.isFocused();
+    }
+    
+    /**
+     * Get window focus, input and power state
+     */
+    public WindowStateTracker getWindowState() {
+        return windowState;
     }
     
     public void shutdown() {
@@ -116,5 +232,7 @@ public class OptimizationManager {
         if (particleOptimizer != null) {
             particleOptimizer.disable();
         }
+        
+        windowState.shutdown();
     }
 }
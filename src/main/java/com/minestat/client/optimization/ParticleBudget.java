@@ -0,0 +1,258 @@
+package com.minestat.client.optimization;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free particle budget shared by all spawning threads.
+ * Particles are reserved before spawning and released when they expire. Each emitter type has its
+ * own stripe holding its live count and a local quota of the global cap, so most reservations and
+ * releases only touch their own stripe; the shared pool of unclaimed quota is only touched to
+ * refill or return a chunk. Quota is conserved, so concurrent spawns can never oversubscribe the cap.
+ * Each emitter type may also have a lower cap of its own.
+ */
+public class ParticleBudget {
+    
+    // Stripes are spread 64 bytes apart so emitter types on different threads do not share cache lines;
+    // each stripe holds its live count at offset 0 and its unused quota at offset 1
+    private static final int STRIDE = 16;
+    private static final int QUOTA = 1;
+    
+    // Quota a stripe takes from the pool beyond what it needs, and the most it keeps after releases
+    private static final int QUOTA_CHUNK = 64;
+    private static final int MAX_STRIPE_QUOTA = 2 * QUOTA_CHUNK;
+    
+    // Global cap minus all live particles and all stripe quotas, negative while over a lowered cap
+    private final AtomicInteger unclaimed;
+    private final AtomicIntegerArray stripeState;
+    private final AtomicIntegerArray typeLimits;
+    private final LongAdder[] rejections;
+    private final LongAdder granted = new LongAdder();
+    private final int stripes;
+    
+    private volatile int maxParticles;
+    
+    public ParticleBudget(int stripes, int maxParticles) {
+        this.stripes = stripes;
+        this.maxParticles = maxParticles;
+        this.unclaimed = new AtomicInteger(maxParticles);
+        this.stripeState = new AtomicIntegerArray(stripes * STRIDE);
+        this.typeLimits = new AtomicIntegerArray(stripes);
+        this.rejections = new LongAdder[stripes];
+        
+        for (int i = 0; i < stripes; i++) {
+            typeLimits.set(i, Integer.MAX_VALUE);
+            rejections[i] = new LongAdder();
+        }
+    }
+    
+    /**
+     * Reserve up to count particles for an emitter type
+     * @return number of particles granted, the caller spawns only that many
+     */
+    public int reserve(int stripe, int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        
+        int slot = stripe * STRIDE;
+        int typeLimit = typeLimits.get(stripe);
+        
+        // Claim from the type first, then from the global cap, and give back what the cap refused
+        int typeGranted;
+        while (true) {
+            int current = stripeState.get(slot);
+            typeGranted = Math.min(count, typeLimit - current);
+            if (typeGranted <= 0) {
+                rejections[stripe].add(count);
+                return 0;
+            }
+            if (stripeState.compareAndSet(slot, current, current + typeGranted)) {
+                break;
+            }
+        }
+        
+        int globalGranted = claimQuota(stripe, typeGranted);
+        
+        if (globalGranted < typeGranted) {
+            stripeState.addAndGet(slot, globalGranted - typeGranted);
+        }
+        if (globalGranted < count) {
+            rejections[stripe].add(count - globalGranted);
+        }
+        granted.add(globalGranted);
+        
+        return globalGranted;
+    }
+    
+    /**
+     * Record particles spawned without applying any cap, e.g. while optimization is disabled.
+     * They are released like any other, so the budget stays exact when caps apply again.
+     */
+    public void reserveUncapped(int stripe, int count) {
+        if (count <= 0) {
+            return;
+        }
+        
+        stripeState.addAndGet(stripe * STRIDE, count);
+        unclaimed.addAndGet(-count);
+        granted.add(count);
+    }
+    
+    /**
+     * Take quota for count particles: the stripe's own first, then a refill from the pool,
+     * and as a last resort quota left unused in other stripes
+     * @return quota taken, at most count
+     */
+    private int claimQuota(int stripe, int count) {
+        int slot = stripe * STRIDE;
+        if (unclaimed.get() < 0) {
+            // Over a lowered cap: this stripe's quota pays that off instead of being spent
+            unclaimed.addAndGet(take(stripeState, slot + QUOTA, Integer.MAX_VALUE));
+            return take(unclaimed, count);
+        }
+        
+        int taken = take(stripeState, slot + QUOTA, count);
+        if (taken == count) {
+            return taken;
+        }
+        
+        // Refill with a chunk to spare, so the next reservations stay on this stripe
+        int needed = count - taken;
+        int refill = take(unclaimed, needed + QUOTA_CHUNK);
+        if (refill > needed) {
+            stripeState.addAndGet(slot + QUOTA, refill - needed);
+            return count;
+        }
+        taken += refill;
+        
+        for (int other = 0; other < stripes && taken < count; other++) {
+            if (other != stripe) {
+                taken += take(stripeState, other * STRIDE + QUOTA, count - taken);
+            }
+        }
+        return taken;
+    }
+    
+    private static int take(AtomicIntegerArray array, int index, int wanted) {
+        while (true) {
+            int current = array.get(index);
+            int taken = Math.min(wanted, current);
+            if (taken <= 0) {
+                return 0;
+            }
+            if (array.compareAndSet(index, current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+    
+    private static int take(AtomicInteger counter, int wanted) {
+        while (true) {
+            int current = counter.get();
+            int taken = Math.min(wanted, current);
+            if (taken <= 0) {
+                return 0;
+            }
+            if (counter.compareAndSet(current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+    
+    /**
+     * Return particles of an emitter type. Releasing more than is live only empties the stripe.
+     */
+    public void release(int stripe, int count) {
+        if (count <= 0) {
+            return;
+        }
+        
+        int slot = stripe * STRIDE;
+        int released;
+        while (true) {
+            int current = stripeState.get(slot);
+            released = Math.min(count, current);
+            if (released <= 0) {
+                return;
+            }
+            if (stripeState.compareAndSet(slot, current, current - released)) {
+                break;
+            }
+        }
+        
+        // Keep the quota on the stripe, handing back to the pool only what exceeds its share,
+        // or all of it while over a lowered cap
+        int quota = stripeState.addAndGet(slot + QUOTA, released);
+        if (unclaimed.get() < 0) {
+            unclaimed.addAndGet(take(stripeState, slot + QUOTA, quota));
+        } else if (quota > MAX_STRIPE_QUOTA) {
+            int excess = take(stripeState, slot + QUOTA, quota - QUOTA_CHUNK);
+            unclaimed.addAndGet(excess);
+        }
+    }
+    
+    /**
+     * Cap the live particles of one emitter type, the global cap still applies
+     */
+    public void setTypeLimit(int stripe, int limit) {
+        typeLimits.set(stripe, Math.max(0, limit));
+    }
+    
+    /**
+     * Change the global cap. Live particles above a lowered cap stay until they expire.
+     * Lowering it pulls the unused stripe quotas back first, so none of them is granted above the new cap.
+     */
+    public synchronized void setMaxParticles(int maxParticles) {
+        if (maxParticles < this.maxParticles) {
+            for (int i = 0; i < stripes; i++) {
+                unclaimed.addAndGet(take(stripeState, i * STRIDE + QUOTA, Integer.MAX_VALUE));
+            }
+        }
+        unclaimed.addAndGet(maxParticles - this.maxParticles);
+        this.maxParticles = maxParticles;
+    }
+    
+    public int getMaxParticles() {
+        return maxParticles;
+    }
+    
+    /**
+     * Live particles of all emitter types, summed over the stripes
+     */
+    public int getLiveCount() {
+        int sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += stripeState.get(i * STRIDE);
+        }
+        return sum;
+    }
+    
+    public int getLiveCount(int stripe) {
+        return stripeState.get(stripe * STRIDE);
+    }
+    
+    public int getAvailable() {
+        return Math.max(0, maxParticles - getLiveCount());
+    }
+    
+    /**
+     * Particles refused for an emitter type because a cap was reached
+     */
+    public long getRejectedCount(int stripe) {
+        return rejections[stripe].sum();
+    }
+    
+    public long getRejectedCount() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += rejections[i].sum();
+        }
+        return sum;
+    }
+    
+    public long getGrantedCount() {
+        return granted.sum();
+    }
+}
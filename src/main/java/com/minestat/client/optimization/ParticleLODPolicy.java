@@ -0,0 +1,113 @@
+package com.minestat.client.optimization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scales particle spawn rate, lifetime and cull distance from the particle density setting
+ * and the frame time headroom.
+ * Frames over budget shrink the load scale multiplicatively, frames with headroom grow it back
+ * slowly, so particle load settles just below what the machine sustains.
+ * Settings are updated from the render thread, the spawn helpers are safe from any thread.
+ */
+public class ParticleLODPolicy {
+    
+    private static final Logger LOGGER = LogManager.getLogger(ParticleLODPolicy.class);
+    
+    public static final double BASE_CULL_DISTANCE = 32.0;
+    private static final double MIN_CULL_DISTANCE = 8.0;
+    
+    // Load scale shrinks by DECREASE per frame over budget and grows by INCREASE per frame with headroom
+    private static final float MIN_SCALE = 0.25f;
+    private static final float DECREASE = 0.95f;
+    private static final float INCREASE = 0.005f;
+    
+    private volatile float density = 1.0f;
+    private volatile float scale = 1.0f;
+    
+    private final FrameBudgetTracker frameBudget = new FrameBudgetTracker();
+    private boolean throttled = false;
+    
+    private final LongAdder thinned = new LongAdder();
+    
+    /**
+     * @param percent VideoSettings.particleDensity, 0 to 100
+     */
+    public void setDensity(int percent) {
+        density = Math.max(0, Math.min(100, percent)) / 100.0f;
+    }
+    
+    /**
+     * Feed the last frame's work time, see DynamicFPSController.getLastWorkNanos()
+     */
+    public void recordFrame(long workNanos, long targetNanos) {
+        FrameBudgetTracker.Budget budget = frameBudget.record(workNanos, targetNanos);
+        
+        if (budget == FrameBudgetTracker.Budget.OVER) {
+            scale = Math.max(MIN_SCALE, scale * DECREASE);
+        } else if (budget == FrameBudgetTracker.Budget.HEADROOM) {
+            scale = Math.min(1.0f, scale + INCREASE);
+        }
+        
+        boolean nowThrottled = scale < 1.0f;
+        if (nowThrottled != throttled) {
+            throttled = nowThrottled;
+            LOGGER.debug("Particle load {}", throttled ? "throttled, frames are over budget" : "restored");
+        }
+    }
+    
+    /**
+     * Thin a spawn request to the current load. Fractions are rounded randomly so the
+     * expected number of particles is exact even for single spawns.
+     * @return how many of the requested particles to spawn
+     */
+    public int thin(int count) {
+        float probability = getSpawnProbability();
+        if (probability >= 1.0f || count <= 0) {
+            return count;
+        }
+        
+        float expected = count * probability;
+        int kept = (int) expected;
+        if (ThreadLocalRandom.current().nextFloat() < expected - kept) {
+            kept++;
+        }
+        
+        thinned.add(count - kept);
+        return kept;
+    }
+    
+    /**
+     * Shorten a particle lifetime, down to half at the lowest load
+     */
+    public int scaleLifetime(int lifetimeTicks) {
+        float factor = 0.5f + 0.5f * getSpawnProbability();
+        return Math.max(1, Math.round(lifetimeTicks * factor));
+    }
+    
+    public float getSpawnProbability() {
+        return density * scale;
+    }
+    
+    public double getCullDistance() {
+        double distance = BASE_CULL_DISTANCE * (0.5 + 0.5 * density) * scale;
+        return Math.max(MIN_CULL_DISTANCE, distance);
+    }
+    
+    /**
+     * Frame time scale of the particle load, 1 when frames meet their target
+     */
+    public float getLoadScale() {
+        return scale;
+    }
+    
+    /**
+     * Particles dropped by density and load thinning
+     */
+    public long getThinnedCount() {
+        return thinned.sum();
+    }
+}
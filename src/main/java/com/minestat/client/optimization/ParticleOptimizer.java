@@ -1,5 +1,6 @@
 package com.minestat.client.optimization;
 
+import com.minestat.client.MinestatClient;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -10,58 +11,208 @@ public class ParticleOptimizer {
     
     private static final Logger LOGGER = LogManager.getLogger(ParticleOptimizer.class);
     
+    /**
+     * Particle sources, each accounted in its own budget stripe
+     */
+    public enum EmitterType {
+        WORLD,
+        ENTITY,
+        WEATHER,
+        FIREWORK,
+        COSMETIC
+    }
+    
+    private static final EmitterType[] EMITTER_TYPES = EmitterType.values();
+    
+    // Fixed storage, about 430 KB, particles beyond it are refused even if the budget allows
+    private static final int POOL_CAPACITY = 8192;
+    
     private boolean enabled = false;
-    private int maxParticles = 4000;
-    private int currentParticleCount = 0;
+    private final ParticleBudget budget = new ParticleBudget(EMITTER_TYPES.length, 4000);
+    private final SpatialHashGrid grid = new SpatialHashGrid(4096);
+    private final ParticlePool pool = new ParticlePool(POOL_CAPACITY);
+    private final int[] expiredCounts = new int[EMITTER_TYPES.length];
+    private final ParticleLODPolicy lodPolicy = new ParticleLODPolicy();
     
     public void enable() {
         enabled = true;
-        LOGGER.info("Particle optimization enabled (max particles: {})", maxParticles);
+        int density = MinestatClient.getInstance().getConfigManager().getConfig().video.particleDensity;
+        lodPolicy.setDensity(density);
+        LOGGER.info("Particle optimization enabled (max particles: {}, density: {}%)",
+                    budget.getMaxParticles(), density);
     }
     
     public void disable() {
         enabled = false;
-        LOGGER.info("Particle optimization disabled");
+        grid.clear();
+        pool.clear(expiredCounts);
+        releaseExpired();
+        LOGGER.info("Particle optimization disabled (rejected spawns: {})", budget.getRejectedCount());
     }
     
     /**
-     * Check if a new particle can be spawned
+     * Update the particle density setting and frame time headroom, called once per frame
+     * @param workNanos last frame's work time before pacing, or 0 if unknown
+     * @param targetNanos frame time target, or 0 if unknown
      */
-    public boolean canSpawnParticle() {
+    public void update(long workNanos, long targetNanos) {
         if (!enabled) {
-            return true;
+            return;
         }
         
-        return currentParticleCount < maxParticles;
+        lodPolicy.setDensity(MinestatClient.getInstance().getConfigManager().getConfig().video.particleDensity);
+        lodPolicy.recordFrame(workNanos, targetNanos);
     }
     
     /**
-     * Register a new particle
+     * Reserve budget for particles before spawning them. Safe to call from any thread.
+     * The request is first thinned by particle density and frame time headroom.
+     * @return number of particles that may be spawned, between 0 and count
      */
-    public void registerParticle() {
+    public int reserve(EmitterType type, int count) {
+        if (!enabled) {
+            // Still counted, expiring particles are released whether or not optimization is on
+            budget.reserveUncapped(type.ordinal(), count);
+            return count;
+        }
+        
+        return budget.reserve(type.ordinal(), lodPolicy.thin(count));
+    }
+    
+    /**
+     * Return budget of expired particles. Safe to call from any thread.
+     */
+    public void release(EmitterType type, int count) {
+        budget.release(type.ordinal(), count);
+    }
+    
+    /**
+     * Spawn a particle into the pool if the budget allows. Must be called from the thread that calls tick().
+     * @param color packed ARGB
+     * @return the particle index until the next tick, or -1 if it was refused
+     */
+    public int spawnParticle(EmitterType type, double x, double y, double z, float vx, float vy, float vz,
+                             float gravity, int lifetimeTicks, int color) {
+        if (reserve(type, 1) == 0) {
+            return -1;
+        }
+        
         if (enabled) {
-            currentParticleCount++;
+            lifetimeTicks = lodPolicy.scaleLifetime(lifetimeTicks);
         }
+        
+        int index = pool.spawn(type.ordinal(), x, y, z, vx, vy, vz, gravity, lifetimeTicks, color);
+        if (index < 0) {
+            release(type, 1);
+        } else {
+            grid.update(index, x, y, z);
+        }
+        return index;
     }
     
     /**
-     * Unregister a particle (when it expires)
+     * Advance pooled particles by one game tick and return the budget of expired ones
+     * @return number of expired particles
      */
-    public void unregisterParticle() {
-        if (enabled && currentParticleCount > 0) {
-            currentParticleCount--;
+    public int tick() {
+        int before = pool.size();
+        int expired = pool.tick(expiredCounts);
+        if (expired > 0) {
+            releaseExpired();
+        }
+        
+        syncGrid(before);
+        return expired;
+    }
+    
+    /**
+     * Move every pooled particle in the grid. The grid is keyed by pool index: live particles stay
+     * dense, so indices past the new size are the ones that expired, and a particle swapped into
+     * an expired slot simply moves that entry. Only cell border crossings touch the grid.
+     */
+    private void syncGrid(int previousSize) {
+        int size = pool.size();
+        double[] x = pool.getPositionX();
+        double[] y = pool.getPositionY();
+        double[] z = pool.getPositionZ();
+        
+        for (int i = 0; i < size; i++) {
+            grid.update(i, x[i], y[i], z[i]);
+        }
+        for (int i = size; i < previousSize; i++) {
+            grid.remove(i);
+        }
+    }
+    
+    /**
+     * Cull pooled particles against the camera, visiting only grid cells within the cull distance
+     * @param out receives pool indices of particles to render, valid until the next tick()
+     * @return number of particles within the cull distance, may exceed out.length
+     */
+    public int collectVisibleParticles(double cameraX, double cameraY, double cameraZ, int[] out) {
+        if (!enabled) {
+            int size = pool.size();
+            for (int i = 0; i < Math.min(size, out.length); i++) {
+                out[i] = i;
+            }
+            return size;
+        }
+        
+        return grid.queryRange(cameraX, cameraY, cameraZ, getParticleCullDistance(), out);
+    }
+    
+    private void releaseExpired() {
+        for (int i = 0; i < expiredCounts.length; i++) {
+            if (expiredCounts[i] > 0) {
+                release(EMITTER_TYPES[i], expiredCounts[i]);
+                expiredCounts[i] = 0;
+            }
         }
     }
     
     /**
-     * Get particle cull distance based on settings
+     * Get the pooled particles for rendering
+     */
+    public ParticlePool getParticlePool() {
+        return pool;
+    }
+    
+    /**
+     * Check if a new particle can be spawned. Only a hint under concurrent spawning,
+     * use reserve() to actually claim budget.
+     */
+    public boolean canSpawnParticle() {
+        if (!enabled) {
+            return true;
+        }
+        
+        return budget.getAvailable() > 0;
+    }
+    
+    /**
+     * Register a new world particle
+     * @return false if the budget is exhausted and the particle must not be spawned
+     */
+    public boolean registerParticle() {
+        return reserve(EmitterType.WORLD, 1) == 1;
+    }
+    
+    /**
+     * Unregister a world particle (when it expires)
+     */
+    public void unregisterParticle() {
+        release(EmitterType.WORLD, 1);
+    }
+    
+    /**
+     * Get particle cull distance based on density and frame time headroom
      */
     public double getParticleCullDistance() {
         if (!enabled) {
             return Double.MAX_VALUE;
         }
         
-        return 32.0; // Cull particles beyond 32 blocks
+        return lodPolicy.getCullDistance();
     }
     
     /**
@@ -77,11 +228,48 @@ public class ParticleOptimizer {
     }
     
     public void setMaxParticles(int max) {
-        this.maxParticles = max;
+        budget.setMaxParticles(max);
         LOGGER.info("Max particles set to: {}", max);
     }
     
+    /**
+     * Cap one emitter type below the global maximum, e.g. so cosmetics cannot starve world particles
+     */
+    public void setEmitterLimit(EmitterType type, int max) {
+        budget.setTypeLimit(type.ordinal(), max);
+    }
+    
     public int getCurrentParticleCount() {
-        return currentParticleCount;
+        return budget.getLiveCount();
+    }
+    
+    public int getParticleCount(EmitterType type) {
+        return budget.getLiveCount(type.ordinal());
+    }
+    
+    /**
+     * Spawns refused for an emitter type because a cap was reached
+     */
+    public long getRejectedCount(EmitterType type) {
+        return budget.getRejectedCount(type.ordinal());
+    }
+    
+    public long getRejectedCount() {
+        return budget.getRejectedCount();
+    }
+    
+    /**
+     * Get the density and frame time policy that scales particle load
+     */
+    public ParticleLODPolicy getLODPolicy() {
+        return lodPolicy;
+    }
+    
+    /**
+     * Get the spatial index of pooled particles for neighbour and range queries.
+     * Ids are pool indices, kept current by spawnParticle() and tick().
+     */
+    public SpatialHashGrid getSpatialGrid() {
+        return grid;
     }
 }
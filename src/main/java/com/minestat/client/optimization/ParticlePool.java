@@ -0,0 +1,181 @@
+package com.minestat.client.optimization;
+
+/**
+ * Fixed-capacity particle storage in parallel primitive arrays.
+ * Spawning and expiring particles allocates nothing, expired particles are swap-removed so live
+ * particles always occupy indices 0 to size() - 1. Indices are only stable until the next tick().
+ * Not thread-safe, use it from the thread that ticks particles.
+ */
+public class ParticlePool {
+    
+    // Vanilla particle motion: velocity keeps 98% per tick, gravity in blocks per tick squared
+    private static final float DRAG = 0.98f;
+    public static final float DEFAULT_GRAVITY = 0.04f;
+    
+    private final int capacity;
+    
+    private final double[] posX;
+    private final double[] posY;
+    private final double[] posZ;
+    private final float[] velocityX;
+    private final float[] velocityY;
+    private final float[] velocityZ;
+    private final float[] gravity;
+    private final int[] age;
+    private final int[] lifetime;
+    private final int[] color;
+    private final byte[] emitter;
+    
+    private int size = 0;
+    
+    public ParticlePool(int capacity) {
+        this.capacity = capacity;
+        this.posX = new double[capacity];
+        this.posY = new double[capacity];
+        this.posZ = new double[capacity];
+        this.velocityX = new float[capacity];
+        this.velocityY = new float[capacity];
+        this.velocityZ = new float[capacity];
+        this.gravity = new float[capacity];
+        this.age = new int[capacity];
+        this.lifetime = new int[capacity];
+        this.color = new int[capacity];
+        this.emitter = new byte[capacity];
+    }
+    
+    /**
+     * Add a particle
+     * @param emitterType small id of the source, reported back when the particle expires
+     * @param color packed ARGB
+     * @return the particle index, or -1 if the pool is full
+     */
+    public int spawn(int emitterType, double x, double y, double z,
+                     float vx, float vy, float vz, float gravity, int lifetimeTicks, int color) {
+        if (size == capacity) {
+            return -1;
+        }
+        
+        int i = size++;
+        posX[i] = x;
+        posY[i] = y;
+        posZ[i] = z;
+        velocityX[i] = vx;
+        velocityY[i] = vy;
+        velocityZ[i] = vz;
+        this.gravity[i] = gravity;
+        age[i] = 0;
+        lifetime[i] = Math.max(1, lifetimeTicks);
+        this.color[i] = color;
+        emitter[i] = (byte) emitterType;
+        
+        return i;
+    }
+    
+    /**
+     * Advance every particle by one tick and remove the expired ones
+     * @param expiredPerEmitter incremented by the number of expired particles of each emitter type
+     * @return number of expired particles
+     */
+    public int tick(int[] expiredPerEmitter) {
+        int count = size;
+        
+        // Straight pass over the arrays with no branches, removal happens separately
+        for (int i = 0; i < count; i++) {
+            posX[i] += velocityX[i];
+            posY[i] += velocityY[i];
+            posZ[i] += velocityZ[i];
+            velocityX[i] *= DRAG;
+            velocityY[i] = (velocityY[i] - gravity[i]) * DRAG;
+            velocityZ[i] *= DRAG;
+            age[i]++;
+        }
+        
+        int expired = 0;
+        int i = 0;
+        while (i < size) {
+            if (age[i] >= lifetime[i]) {
+                expiredPerEmitter[emitter[i]]++;
+                removeAt(i);
+                expired++;
+            } else {
+                i++;
+            }
+        }
+        
+        return expired;
+    }
+    
+    /**
+     * Expire a particle early, it is removed and reported by the next tick()
+     */
+    public void kill(int i) {
+        age[i] = lifetime[i];
+    }
+    
+    private void removeAt(int i) {
+        int last = --size;
+        if (i == last) {
+            return;
+        }
+        
+        posX[i] = posX[last];
+        posY[i] = posY[last];
+        posZ[i] = posZ[last];
+        velocityX[i] = velocityX[last];
+        velocityY[i] = velocityY[last];
+        velocityZ[i] = velocityZ[last];
+        gravity[i] = gravity[last];
+        age[i] = age[last];
+        lifetime[i] = lifetime[last];
+        color[i] = color[last];
+        emitter[i] = emitter[last];
+    }
+    
+    /**
+     * Remove every particle
+     * @param removedPerEmitter incremented by the number of removed particles of each emitter type
+     */
+    public void clear(int[] removedPerEmitter) {
+        for (int i = 0; i < size; i++) {
+            removedPerEmitter[emitter[i]]++;
+        }
+        size = 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    // Raw arrays for render loops, only indices below size() are live
+    
+    public double[] getPositionX() {
+        return posX;
+    }
+    
+    public double[] getPositionY() {
+        return posY;
+    }
+    
+    public double[] getPositionZ() {
+        return posZ;
+    }
+    
+    public int[] getColors() {
+        return color;
+    }
+    
+    /**
+     * Fraction of its lifetime a particle has lived, for fading
+     */
+    public float getAgeFraction(int i) {
+        return age[i] / (float) lifetime[i];
+    }
+    
+    public byte getEmitterType(int i) {
+        return emitter[i];
+    }
+}
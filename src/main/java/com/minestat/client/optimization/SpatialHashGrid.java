@@ -0,0 +1,376 @@
+package com.minestat.client.optimization;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Uniform grid of 16x16x16 cells (chunk sections) for proximity queries over entities or particles.
+ * Objects are identified by an int id. Moving an object only touches the grid when it crosses a
+ * cell border, and queries visit only the cells around the query point.
+ * Not thread-safe, use it from the render thread only.
+ */
+public class SpatialHashGrid {
+    
+    public static final int CELL_SIZE = 16;
+    private static final int CELL_SHIFT = 4;
+    
+    // Empty cells kept for reuse instead of being garbage collected
+    private static final int MAX_POOLED_CELLS = 256;
+    
+    private final Long2ObjectMap<Cell> cells = new Long2ObjectMap<>();
+    private final Long2IntMap indices;
+    private final ArrayDeque<Cell> cellPool = new ArrayDeque<>();
+    
+    // Objects as parallel arrays, kept dense by swap-remove
+    private int[] ids;
+    private double[] posX;
+    private double[] posY;
+    private double[] posZ;
+    private long[] cellKeys;
+    private int[] cellSlots;
+    private int size = 0;
+    
+    // Bounded max-heap of the best candidates during nearest queries
+    private int[] heapIndices = new int[16];
+    private double[] heapDistances = new double[16];
+    
+    public SpatialHashGrid(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        this.indices = new Long2IntMap(capacity, -1);
+        this.ids = new int[capacity];
+        this.posX = new double[capacity];
+        this.posY = new double[capacity];
+        this.posZ = new double[capacity];
+        this.cellKeys = new long[capacity];
+        this.cellSlots = new int[capacity];
+    }
+    
+    /**
+     * Insert an object, or move it if it is already in the grid
+     */
+    public void update(int id, double x, double y, double z) {
+        int index = indices.get(id);
+        
+        if (index < 0) {
+            insert(id, x, y, z);
+            return;
+        }
+        
+        posX[index] = x;
+        posY[index] = y;
+        posZ[index] = z;
+        
+        long key = cellKey(x, y, z);
+        if (key != cellKeys[index]) {
+            unlinkFromCell(index);
+            linkToCell(index, key);
+        }
+    }
+    
+    private void insert(int id, double x, double y, double z) {
+        if (size == ids.length) {
+            grow();
+        }
+        
+        int index = size++;
+        ids[index] = id;
+        posX[index] = x;
+        posY[index] = y;
+        posZ[index] = z;
+        indices.put(id, index);
+        linkToCell(index, cellKey(x, y, z));
+    }
+    
+    /**
+     * @return false if the object was not in the grid
+     */
+    public boolean remove(int id) {
+        int index = indices.remove(id);
+        
+        if (index < 0) {
+            return false;
+        }
+        
+        unlinkFromCell(index);
+        
+        // Move the last object into the gap, its cell must point at the new index
+        int last = --size;
+        if (index != last) {
+            ids[index] = ids[last];
+            posX[index] = posX[last];
+            posY[index] = posY[last];
+            posZ[index] = posZ[last];
+            cellKeys[index] = cellKeys[last];
+            cellSlots[index] = cellSlots[last];
+            
+            cells.get(cellKeys[index]).members[cellSlots[index]] = index;
+            indices.put(ids[index], index);
+        }
+        
+        return true;
+    }
+    
+    public boolean contains(int id) {
+        return indices.containsKey(id);
+    }
+    
+    /**
+     * Find objects within a radius
+     * @param out receives ids, objects beyond its length are counted but not stored
+     * @return number of objects found
+     */
+    public int queryRange(double x, double y, double z, double radius, int[] out) {
+        double radiusSq = radius * radius;
+        int found = 0;
+        
+        int minX = toCell(x - radius);
+        int maxX = toCell(x + radius);
+        int minY = toCell(y - radius);
+        int maxY = toCell(y + radius);
+        int minZ = toCell(z - radius);
+        int maxZ = toCell(z + radius);
+        
+        for (int cellX = minX; cellX <= maxX; cellX++) {
+            for (int cellY = minY; cellY <= maxY; cellY++) {
+                for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                    Cell cell = cells.get(pack(cellX, cellY, cellZ));
+                    if (cell == null) {
+                        continue;
+                    }
+                    
+                    for (int i = 0; i < cell.size; i++) {
+                        int index = cell.members[i];
+                        if (distanceSq(index, x, y, z) <= radiusSq) {
+                            if (found < out.length) {
+                                out[found] = ids[index];
+                            }
+                            found++;
+                        }
+                    }
+                }
+            }
+        }
+        
+        return found;
+    }
+    
+    /**
+     * Find the k nearest objects within maxRadius, searching outwards shell by shell of cells
+     * @param out receives up to out.length ids, nearest first
+     * @return number of ids stored
+     */
+    public int queryNearest(double x, double y, double z, double maxRadius, int[] out) {
+        int k = out.length;
+        if (k == 0 || size == 0) {
+            return 0;
+        }
+        
+        if (heapIndices.length < k) {
+            heapIndices = new int[k];
+            heapDistances = new double[k];
+        }
+        
+        double maxRadiusSq = maxRadius * maxRadius;
+        int centerX = toCell(x);
+        int centerY = toCell(y);
+        int centerZ = toCell(z);
+        int maxRing = (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(maxRadius / CELL_SIZE));
+        int heapSize = 0;
+        int visited = 0;
+        
+        for (int ring = 0; ring <= maxRing && visited < size; ring++) {
+            // Objects in this ring and beyond are at least ring - 1 whole cells away
+            double reached = (double) Math.max(0, ring - 1) * CELL_SIZE;
+            if (heapSize == k && heapDistances[0] <= reached * reached) {
+                break;
+            }
+            
+            for (int dx = -ring; dx <= ring; dx++) {
+                boolean edgeX = dx == -ring || dx == ring;
+                
+                for (int dy = -ring; dy <= ring; dy++) {
+                    boolean edge = edgeX || dy == -ring || dy == ring;
+                    // Inside the shell only the two z faces belong to this ring
+                    int step = edge || ring == 0 ? 1 : 2 * ring;
+                    
+                    for (int dz = -ring; dz <= ring; dz += step) {
+                        Cell cell = cells.get(pack(centerX + dx, centerY + dy, centerZ + dz));
+                        if (cell == null) {
+                            continue;
+                        }
+                        
+                        visited += cell.size;
+                        for (int i = 0; i < cell.size; i++) {
+                            int index = cell.members[i];
+                            double distanceSq = distanceSq(index, x, y, z);
+                            
+                            if (distanceSq > maxRadiusSq) {
+                                continue;
+                            }
+                            if (heapSize < k) {
+                                heapPush(heapSize++, index, distanceSq);
+                            } else if (distanceSq < heapDistances[0]) {
+                                heapReplaceTop(k, index, distanceSq);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        
+        // Pop the farthest first to fill the output back to front
+        for (int i = heapSize - 1; i >= 0; i--) {
+            out[i] = ids[heapIndices[0]];
+            heapReplaceTop(i, heapIndices[i], heapDistances[i]);
+        }
+        
+        return heapSize;
+    }
+    
+    private void heapPush(int slot, int index, double distanceSq) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (heapDistances[parent] >= distanceSq) {
+                break;
+            }
+            heapIndices[slot] = heapIndices[parent];
+            heapDistances[slot] = heapDistances[parent];
+            slot = parent;
+        }
+        heapIndices[slot] = index;
+        heapDistances[slot] = distanceSq;
+    }
+    
+    private void heapReplaceTop(int heapSize, int index, double distanceSq) {
+        int slot = 0;
+        int half = heapSize >>> 1;
+        
+        while (slot < half) {
+            int child = (slot << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && heapDistances[right] > heapDistances[child]) {
+                child = right;
+            }
+            if (distanceSq >= heapDistances[child]) {
+                break;
+            }
+            heapIndices[slot] = heapIndices[child];
+            heapDistances[slot] = heapDistances[child];
+            slot = child;
+        }
+        
+        if (heapSize > 0) {
+            heapIndices[slot] = index;
+            heapDistances[slot] = distanceSq;
+        }
+    }
+    
+    private double distanceSq(int index, double x, double y, double z) {
+        double dx = posX[index] - x;
+        double dy = posY[index] - y;
+        double dz = posZ[index] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+    
+    private void linkToCell(int index, long key) {
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = cellPool.isEmpty() ? new Cell() : cellPool.pop();
+            cells.put(key, cell);
+        }
+        
+        cellKeys[index] = key;
+        cellSlots[index] = cell.add(index);
+    }
+    
+    private void unlinkFromCell(int index) {
+        long key = cellKeys[index];
+        Cell cell = cells.get(key);
+        
+        int moved = cell.removeAt(cellSlots[index]);
+        if (moved >= 0) {
+            cellSlots[moved] = cellSlots[index];
+        }
+        
+        if (cell.size == 0) {
+            cells.remove(key);
+            if (cellPool.size() < MAX_POOLED_CELLS) {
+                cellPool.push(cell);
+            }
+        }
+    }
+    
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        posZ = Arrays.copyOf(posZ, capacity);
+        cellKeys = Arrays.copyOf(cellKeys, capacity);
+        cellSlots = Arrays.copyOf(cellSlots, capacity);
+    }
+    
+    private static int toCell(double coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+    
+    private static long cellKey(double x, double y, double z) {
+        return pack(toCell(x), toCell(y), toCell(z));
+    }
+    
+    /**
+     * 22 bits of x and z and 20 bits of y cover the whole Minecraft world in sections
+     */
+    private static long pack(int cellX, int cellY, int cellZ) {
+        return ((cellX & 0x3FFFFFL) << 42) | ((cellZ & 0x3FFFFFL) << 20) | (cellY & 0xFFFFFL);
+    }
+    
+    public void clear() {
+        cells.forEach((key, cell) -> {
+            cell.size = 0;
+            if (cellPool.size() < MAX_POOLED_CELLS) {
+                cellPool.push(cell);
+            }
+        });
+        cells.clear();
+        indices.clear();
+        size = 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Cells holding at least one object
+     */
+    public int getCellCount() {
+        return cells.size();
+    }
+    
+    private static class Cell {
+        int[] members = new int[8];
+        int size = 0;
+        
+        int add(int index) {
+            if (size == members.length) {
+                members = Arrays.copyOf(members, size * 2);
+            }
+            members[size] = index;
+            return size++;
+        }
+        
+        /**
+         * Swap-remove a member
+         * @return the object moved into the slot, or -1
+         */
+        int removeAt(int slot) {
+            int last = --size;
+            if (slot == last) {
+                return -1;
+            }
+            members[slot] = members[last];
+            return members[slot];
+        }
+    }
+}
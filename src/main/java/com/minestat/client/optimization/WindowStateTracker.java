@@ -0,0 +1,311 @@
+package com.minestat.client.optimization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.awt.AWTEvent;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks window focus, minimized state, user input and power source
+ * so the frame rate can follow what the user is actually doing.
+ * The power source is polled on a background thread, reading it never blocks the frame thread.
+ */
+public class WindowStateTracker {
+    
+    private static final Logger LOGGER = LogManager.getLogger(WindowStateTracker.class);
+    
+    private static final Path POWER_SUPPLY_DIR = Paths.get("/sys/class/power_supply");
+    // sysfs reads are cheap; starting powershell or pmset is not, so those are polled rarely
+    private static final long POWER_POLL_SECONDS = 15;
+    private static final long POWER_COMMAND_POLL_SECONDS = 180;
+    private static final long POWER_COMMAND_TIMEOUT_SECONDS = 10;
+    
+    private static final String OS_NAME = System.getProperty("os.name", "").toLowerCase();
+    private static final boolean LINUX_SYSFS = !OS_NAME.startsWith("windows") && !OS_NAME.startsWith("mac");
+    
+    private static final long INPUT_EVENT_MASK = AWTEvent.KEY_EVENT_MASK
+                                               | AWTEvent.MOUSE_EVENT_MASK
+                                               | AWTEvent.MOUSE_MOTION_EVENT_MASK
+                                               | AWTEvent.MOUSE_WHEEL_EVENT_MASK;
+    
+    private volatile boolean focused = true;
+    private volatile boolean minimized = false;
+    private volatile long lastInputTime = System.nanoTime();
+    
+    // null means detect automatically
+    private volatile Boolean batteryOverride = null;
+    private volatile boolean onBattery = false;
+    private volatile ScheduledExecutorService powerMonitor;
+    // Set once a poll finds no battery at all, the monitor is not started again
+    private volatile boolean noBattery = false;
+    
+    private boolean installed = false;
+    
+    /**
+     * Listen to focus, minimize and input events of all AWT windows of this process
+     */
+    public synchronized void install() {
+        if (installed || GraphicsEnvironment.isHeadless()) {
+            return;
+        }
+        
+        Toolkit.getDefaultToolkit().addAWTEventListener(event -> {
+            switch (event.getID()) {
+                case WindowEvent.WINDOW_GAINED_FOCUS:
+                    setFocused(true);
+                    break;
+                case WindowEvent.WINDOW_LOST_FOCUS:
+                    setFocused(false);
+                    break;
+                case WindowEvent.WINDOW_ICONIFIED:
+                    setMinimized(true);
+                    break;
+                case WindowEvent.WINDOW_DEICONIFIED:
+                    setMinimized(false);
+                    break;
+                default:
+                    break;
+            }
+        }, AWTEvent.WINDOW_FOCUS_EVENT_MASK | AWTEvent.WINDOW_EVENT_MASK);
+        
+        Toolkit.getDefaultToolkit().addAWTEventListener(event -> notifyInput(), INPUT_EVENT_MASK);
+        
+        installed = true;
+        LOGGER.info("Window state tracking installed");
+    }
+    
+    /**
+     * Report user input, resets the idle timer
+     */
+    public void notifyInput() {
+        lastInputTime = System.nanoTime();
+    }
+    
+    public void setFocused(boolean focused) {
+        this.focused = focused;
+        if (focused) {
+            notifyInput();
+        }
+    }
+    
+    public void setMinimized(boolean minimized) {
+        this.minimized = minimized;
+    }
+    
+    /**
+     * Force the power source, or pass null to detect it automatically
+     */
+    public void setOnBatteryOverride(Boolean onBattery) {
+        this.batteryOverride = onBattery;
+    }
+    
+    public boolean isFocused() {
+        return focused;
+    }
+    
+    public boolean isMinimized() {
+        return minimized;
+    }
+    
+    /**
+     * Get time since the last user input in nanoseconds
+     */
+    public long getIdleNanos(long now) {
+        return now - lastInputTime;
+    }
+    
+    /**
+     * Check if running on battery power, as last detected by the power monitor.
+     * The first call starts the monitor, which polls every 15 seconds from sysfs on Linux and every
+     * 3 minutes through a command elsewhere. It stops for good on machines without a battery.
+     */
+    public boolean isOnBattery() {
+        Boolean override = batteryOverride;
+        if (override != null) {
+            return override;
+        }
+        
+        if (powerMonitor == null && !noBattery) {
+            startPowerMonitor();
+        }
+        return onBattery;
+    }
+    
+    private synchronized void startPowerMonitor() {
+        if (powerMonitor != null || noBattery) {
+            return;
+        }
+        
+        ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Minestat-PowerMonitor-1");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        powerMonitor = monitor;
+        monitor.execute(() -> pollPower(monitor));
+    }
+    
+    /**
+     * Read the power source and schedule the next poll, unless the machine has no battery
+     */
+    private void pollPower(ScheduledExecutorService monitor) {
+        PowerState state = detectPower();
+        onBattery = state == PowerState.BATTERY;
+        
+        if (state == PowerState.NO_BATTERY) {
+            LOGGER.info("No battery found, power source polling stopped");
+            noBattery = true;
+            monitor.shutdown();
+            return;
+        }
+        
+        if (!monitor.isShutdown()) {
+            monitor.schedule(() -> pollPower(monitor),
+                             LINUX_SYSFS ? POWER_POLL_SECONDS : POWER_COMMAND_POLL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * Stop polling the power source, the next isOnBattery() call starts it again
+     */
+    public synchronized void shutdown() {
+        if (powerMonitor != null) {
+            powerMonitor.shutdownNow();
+            powerMonitor = null;
+        }
+    }
+    
+    private enum PowerState {
+        MAINS,
+        BATTERY,
+        // Nothing to poll, e.g. a desktop
+        NO_BATTERY
+    }
+    
+    /**
+     * Detect battery power on Windows, macOS and Linux, other platforms and failures report mains
+     */
+    private static PowerState detectPower() {
+        try {
+            if (OS_NAME.startsWith("windows")) {
+                return detectWindowsPower();
+            }
+            if (OS_NAME.startsWith("mac")) {
+                return detectMacPower();
+            }
+            return detectLinuxPower();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to read power supply state", e);
+            return PowerState.MAINS;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PowerState.MAINS;
+        }
+    }
+    
+    /**
+     * Win32_Battery.BatteryStatus is 1 while discharging; desktops have no battery and report nothing
+     */
+    private static PowerState detectWindowsPower() throws IOException, InterruptedException {
+        String status = runCommand("powershell", "-NoProfile", "-NonInteractive", "-Command",
+                                   "(Get-CimInstance -ClassName Win32_Battery).BatteryStatus");
+        if (status == null) {
+            return PowerState.MAINS;
+        }
+        status = status.trim();
+        if (status.isEmpty()) {
+            return PowerState.NO_BATTERY;
+        }
+        return status.startsWith("1") ? PowerState.BATTERY : PowerState.MAINS;
+    }
+    
+    private static PowerState detectMacPower() throws IOException, InterruptedException {
+        String status = runCommand("pmset", "-g", "batt");
+        if (status == null) {
+            return PowerState.MAINS;
+        }
+        if (!status.contains("InternalBattery")) {
+            return PowerState.NO_BATTERY;
+        }
+        return status.contains("'Battery Power'") ? PowerState.BATTERY : PowerState.MAINS;
+    }
+    
+    /**
+     * Run a command and return its output, or null if it failed or timed out.
+     * Output goes to a temporary file so a hung command cannot block past the timeout.
+     */
+    private static String runCommand(String... command) throws IOException, InterruptedException {
+        File output = File.createTempFile("minestat-power", ".txt");
+        try {
+            Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+            
+            if (!process.waitFor(POWER_COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                LOGGER.debug("Power source command {} timed out", command[0]);
+                return null;
+            }
+            if (process.exitValue() != 0) {
+                return null;
+            }
+            return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+        } finally {
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+    
+    /**
+     * Detect battery power from Linux sysfs
+     */
+    private static PowerState detectLinuxPower() throws IOException {
+        if (!Files.isDirectory(POWER_SUPPLY_DIR)) {
+            return PowerState.NO_BATTERY;
+        }
+        
+        boolean hasMains = false;
+        boolean mainsOnline = false;
+        boolean hasBattery = false;
+        boolean discharging = false;
+        
+        try (DirectoryStream<Path> supplies = Files.newDirectoryStream(POWER_SUPPLY_DIR)) {
+            for (Path supply : supplies) {
+                String type = readValue(supply.resolve("type"));
+                
+                if ("Mains".equals(type)) {
+                    hasMains = true;
+                    mainsOnline |= "1".equals(readValue(supply.resolve("online")));
+                } else if ("Battery".equals(type)) {
+                    hasBattery = true;
+                    discharging |= "Discharging".equals(readValue(supply.resolve("status")));
+                }
+            }
+        }
+        
+        if (!hasBattery) {
+            return PowerState.NO_BATTERY;
+        }
+        boolean battery = hasMains ? !mainsOnline : discharging;
+        return battery ? PowerState.BATTERY : PowerState.MAINS;
+    }
+    
+    private static String readValue(Path file) {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
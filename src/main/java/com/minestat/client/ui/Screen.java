@@ -9,6 +9,8 @@ import java.awt.*;
 public abstract class Screen extends JFrame {
     
     protected boolean initialized = false;
+    // 0 until the screen is first shown, e.g. while it is only pre-warmed
+    private long lastActiveTime = 0;
     
     public Screen(String title) {
         super(title);
@@ -25,14 +27,22 @@ public abstract class Screen extends JFrame {
      * Show the screen
      */
     public void show() {
+        prepare();
+        lastActiveTime = System.currentTimeMillis();
+        onShow();
+        setVisible(true);
+    }
+    
+    /**
+     * Build the screen components without showing the window
+     */
+    public void prepare() {
         if (!initialized) {
             initComponents();
             initialized = true;
             pack();
             centerWindow();
         }
-        onShow();
-        setVisible(true);
     }
     
     /**
@@ -40,9 +50,25 @@ public abstract class Screen extends JFrame {
      */
     public void hide() {
         setVisible(false);
+        lastActiveTime = System.currentTimeMillis();
         onHide();
     }
     
+    /**
+     * Get the last time this screen was shown or hidden, it has been idle since if it is hidden
+     * @return the time, or 0 if it was never shown
+     */
+    public long getLastActiveTime() {
+        return lastActiveTime;
+    }
+    
+    /**
+     * Check if the screen was shown at least once, rather than only built ahead of time
+     */
+    public boolean wasShown() {
+        return lastActiveTime != 0;
+    }
+    
     /**
      * Center window on screen
      */
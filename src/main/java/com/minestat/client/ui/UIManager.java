@@ -1,5 +1,7 @@
 package com.minestat.client.ui;
 
+import com.minestat.client.MinestatClient;
+import com.minestat.client.config.ConfigManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -12,6 +14,9 @@ public class UIManager {
     
     private static final Logger LOGGER = LogManager.getLogger(UIManager.class);
     
+    // How often hidden screens are checked for release
+    private static final int RELEASE_CHECK_MILLIS = 60_000;
+    
     private LoginScreen loginScreen;
     private MainMenuScreen mainMenu;
     private SettingsScreen settingsScreen;
@@ -19,6 +24,12 @@ public class UIManager {
     private Screen currentScreen;
     private Screen previousScreen;
     
+    private boolean prewarmEnabled = true;
+    private long screenIdleMillis;
+    
+    /**
+     * Set up Swing, call it on the Event Dispatch Thread
+     */
     public void initialize() {
         LOGGER.info("Initializing UI manager...");
         
@@ -29,16 +40,106 @@ public class UIManager {
             LOGGER.warn("Failed to set system look and feel", e);
         }
         
-        // Initialize screens on EDT
-        SwingUtilities.invokeLater(() -> {
+        ConfigManager.PerformanceSettings settings = MinestatClient.getInstance().getConfigManager().getConfig().performance;
+        setPrewarmEnabled(settings.prewarmScreens);
+        screenIdleMillis = settings.screenIdleMinutes * 60_000L;
+        
+        // Screens are built on the EDT the first time they are needed, and released again once idle
+        if (screenIdleMillis > 0) {
+            Timer releaseTimer = new Timer(RELEASE_CHECK_MILLIS, event -> releaseIdleScreens(screenIdleMillis));
+            releaseTimer.start();
+        }
+        LOGGER.info("UI manager initialized");
+    }
+    
+    private LoginScreen getLoginScreen() {
+        if (loginScreen == null) {
             loginScreen = new LoginScreen();
+        }
+        return loginScreen;
+    }
+    
+    private MainMenuScreen getMainMenu() {
+        if (mainMenu == null) {
             mainMenu = new MainMenuScreen();
+        }
+        return mainMenu;
+    }
+    
+    private SettingsScreen getSettingsScreen() {
+        if (settingsScreen == null) {
             settingsScreen = new SettingsScreen();
+        }
+        return settingsScreen;
+    }
+    
+    /**
+     * Build the main menu in the background while the login screen is up,
+     * so switching to it after login is instant
+     */
+    private void prewarmMainMenu() {
+        if (!prewarmEnabled || (mainMenu != null && mainMenu.initialized)) {
+            return;
+        }
+        
+        // Queued behind the login screen so it never delays the first window
+        SwingUtilities.invokeLater(() -> {
+            long start = System.nanoTime();
+            getMainMenu().prepare();
+            LOGGER.debug("Pre-warmed main menu in {} ms", (System.nanoTime() - start) / 1_000_000L);
+        });
+    }
+    
+    /**
+     * Release screens that are not visible and have been hidden for the given time.
+     * Screens that were never shown, like a pre-warmed main menu, are kept until they are used.
+     * Runs periodically on a Swing timer, see PerformanceSettings.screenIdleMinutes.
+     */
+    public void releaseIdleScreens(long maxIdleMillis) {
+        SwingUtilities.invokeLater(() -> {
+            long now = System.currentTimeMillis();
+            
+            // goBack() never returns to the login screen, so it may go even as the previous screen
+            if (previousScreen == loginScreen && isIdle(loginScreen, now, maxIdleMillis, true)) {
+                previousScreen = null;
+            }
+            
+            if (isIdle(loginScreen, now, maxIdleMillis, false)) {
+                loginScreen.dispose();
+                loginScreen = null;
+                LOGGER.info("Released idle login screen");
+            }
+            
+            if (isIdle(mainMenu, now, maxIdleMillis, false)) {
+                mainMenu.dispose();
+                mainMenu = null;
+                LOGGER.info("Released idle main menu");
+            }
             
-            LOGGER.info("UI manager initialized");
+            if (isIdle(settingsScreen, now, maxIdleMillis, false)) {
+                settingsScreen.dispose();
+                settingsScreen = null;
+                LOGGER.info("Released idle settings screen");
+            }
         });
     }
     
+    private boolean isIdle(Screen screen, long now, long maxIdleMillis, boolean allowPrevious) {
+        return screen != null
+            && screen != currentScreen
+            && (allowPrevious || screen != previousScreen)
+            && !screen.isVisible()
+            && screen.wasShown()
+            && now - screen.getLastActiveTime() >= maxIdleMillis;
+    }
+    
+    /**
+     * Enable or disable building the next likely screen ahead of time
+     */
+    public void setPrewarmEnabled(boolean enabled) {
+        this.prewarmEnabled = enabled;
+    }
+    
     /**
      * Show login screen
      */
@@ -51,8 +152,10 @@ public class UIManager {
             }
             
             previousScreen = currentScreen;
-            currentScreen = loginScreen;
-            loginScreen.show();
+            currentScreen = getLoginScreen();
+            currentScreen.show();
+            
+            prewarmMainMenu();
         });
     }
     
@@ -68,8 +171,8 @@ public class UIManager {
             }
             
             previousScreen = currentScreen;
-            currentScreen = mainMenu;
-            mainMenu.show();
+            currentScreen = getMainMenu();
+            currentScreen.show();
         });
     }
     
@@ -85,8 +188,8 @@ public class UIManager {
             }
             
             previousScreen = currentScreen;
-            currentScreen = settingsScreen;
-            settingsScreen.show();
+            currentScreen = getSettingsScreen();
+            currentScreen.show();
         });
     }
     
@@ -0,0 +1,135 @@
+package com.minestat.client.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs startup stages concurrently while respecting their declared dependencies.
+ * Each stage starts as soon as all of its dependencies have finished.
+ */
+public class StartupGraph {
+    
+    private static final Logger LOGGER = LogManager.getLogger(StartupGraph.class);
+    
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private long totalNanos;
+    
+    /**
+     * Register a stage. Dependencies must be registered before the stage that needs them,
+     * which also rules out cycles.
+     */
+    public StartupGraph addStage(String name, Runnable action, String... dependencies) {
+        if (stages.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup stage: " + name);
+        }
+        
+        for (String dependency : dependencies) {
+            if (!stages.containsKey(dependency)) {
+                throw new IllegalArgumentException("Stage " + name + " depends on unknown stage: " + dependency);
+            }
+        }
+        
+        stages.put(name, new Stage(name, action, dependencies));
+        return this;
+    }
+    
+    /**
+     * Run all stages and block until they have finished.
+     * The first failing stage's exception is rethrown.
+     */
+    public void run() throws Exception {
+        if (stages.isEmpty()) {
+            return;
+        }
+        
+        int threads = Math.max(1, Math.min(stages.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new StartupThreadFactory());
+        long start = System.nanoTime();
+        
+        try {
+            Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+            
+            for (Stage stage : stages.values()) {
+                CompletableFuture<?>[] dependencies = new CompletableFuture<?>[stage.dependencies.length];
+                for (int i = 0; i < dependencies.length; i++) {
+                    dependencies[i] = futures.get(stage.dependencies[i]);
+                }
+                
+                futures.put(stage.name, CompletableFuture.allOf(dependencies).thenRunAsync(stage::execute, executor));
+            }
+            
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+            
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+            
+        } finally {
+            totalNanos = System.nanoTime() - start;
+            executor.shutdownNow();
+        }
+        
+        LOGGER.info("Startup finished in {} ms", totalNanos / 1_000_000L);
+    }
+    
+    /**
+     * Get the time each stage took in milliseconds, in registration order
+     */
+    public Map<String, Long> getTimings() {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        
+        for (Stage stage : stages.values()) {
+            timings.put(stage.name, stage.elapsedNanos / 1_000_000L);
+        }
+        
+        return timings;
+    }
+    
+    /**
+     * Get the wall-clock time of the whole startup in milliseconds
+     */
+    public long getTotalTime() {
+        return totalNanos / 1_000_000L;
+    }
+    
+    private static class Stage {
+        final String name;
+        final Runnable action;
+        final String[] dependencies;
+        volatile long elapsedNanos;
+        
+        Stage(String name, Runnable action, String[] dependencies) {
+            this.name = name;
+            this.action = action;
+            this.dependencies = dependencies;
+        }
+        
+        void execute() {
+            long start = System.nanoTime();
+            try {
+                action.run();
+            } finally {
+                elapsedNanos = System.nanoTime() - start;
+                LOGGER.info("Startup stage '{}' took {} ms", name, elapsedNanos / 1_000_000L);
+            }
+        }
+    }
+    
+    private static class StartupThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Minestat-Startup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}